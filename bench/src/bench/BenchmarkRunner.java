@@ -0,0 +1,26 @@
+package bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the GC profiler, which adds the bytes allocated
+ * per operation ({@code gc.alloc.rate.norm}) next to the ops/s score.
+ * <p>
+ * Usage: {@code BenchmarkRunner [regexp]}, e.g. {@code BenchmarkRunner
+ * CoreBenchmark.status} to run a single benchmark.
+ */
+public final class BenchmarkRunner {
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        var options = new OptionsBuilder()
+                .include(args.length > 0 ? args[0] : CoreBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
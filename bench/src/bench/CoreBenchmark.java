@@ -0,0 +1,152 @@
+package bench;
+
+import core.Board;
+import core.ChessGame;
+import core.MoveGenerator;
+import core.move.GameStatus;
+import core.move.Move;
+import core.move.PackedMove;
+import core.move.QualifiedMove;
+import core.square.Square;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the core entry points over each {@link Corpus}. Every
+ * invocation moves on to the next position of the corpus, so the score is
+ * an average over the set.
+ * <p>
+ * Run with {@link BenchmarkRunner} to also get the bytes allocated per
+ * operation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CoreBenchmark {
+    @Param({"Opening", "Middlegame", "Endgame", "Check"})
+    public Corpus corpus;
+
+    private ChessGame[] games;
+    private Board[] boards;
+    private Move[] moves;
+    private Square[] squares;
+    private int[] buffer;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        var fens = this.corpus.fens();
+        this.games = new ChessGame[fens.length];
+        this.boards = new Board[fens.length];
+        this.moves = new Move[fens.length];
+        this.squares = new Square[fens.length];
+        this.buffer = new int[MoveGenerator.MAX_MOVES];
+
+        for (int i = 0; i < fens.length; i++) {
+            var game = ChessGame.fromFen(fens[i]);
+            int count = game.generateLegalMoves(this.buffer);
+            if (count == 0)
+                throw new IllegalStateException("No legal move in " + fens[i]);
+
+            this.games[i] = game;
+            this.boards[i] = game.board();
+            this.moves[i] = PackedMove.toMove(this.buffer[0]);
+            this.squares[i] = this.moves[i].from();
+        }
+    }
+
+    private int next() {
+        int i = this.cursor;
+        this.cursor = i + 1 == this.games.length ? 0 : i + 1;
+        return i;
+    }
+
+    /**
+     * {@link ChessGame#move} followed by the undo that restores the corpus
+     */
+    @Benchmark
+    public Optional<QualifiedMove> moveAndUndo() {
+        int i = next();
+        this.games[i].move(this.moves[i]);
+        return this.games[i].undo();
+    }
+
+    /**
+     * Answered from the game's legal move cache once each position of the
+     * corpus was seen; see {@link #isLegalMoveCold} for the first query
+     */
+    @Benchmark
+    public boolean isLegalMove() {
+        int i = next();
+        return this.games[i].isLegalMove(this.moves[i]);
+    }
+
+    /**
+     * A {@link #moveAndUndo} to drop the legal move cache, then the query
+     * that fills it again: the difference with {@link #moveAndUndo} is the
+     * cost of a cache miss
+     */
+    @Benchmark
+    public boolean isLegalMoveCold() {
+        int i = next();
+        this.games[i].move(this.moves[i]);
+        this.games[i].undo();
+        return this.games[i].isLegalMove(this.moves[i]);
+    }
+
+    /**
+     * Cached, as {@link #isLegalMove}
+     */
+    @Benchmark
+    public ArrayList<Square> getLegalMoves() {
+        int i = next();
+        return this.games[i].getLegalMoves(this.squares[i]);
+    }
+
+    /**
+     * Uncached, as {@link #isLegalMoveCold}
+     */
+    @Benchmark
+    public ArrayList<Square> getLegalMovesCold() {
+        int i = next();
+        this.games[i].move(this.moves[i]);
+        this.games[i].undo();
+        return this.games[i].getLegalMoves(this.squares[i]);
+    }
+
+    @Benchmark
+    public int generateLegalMoves() {
+        return this.games[next()].generateLegalMoves(this.buffer);
+    }
+
+    /**
+     * With the move generator already refreshed for the position; see
+     * {@link #statusCold} for the first query
+     */
+    @Benchmark
+    public GameStatus status() {
+        return this.games[next()].status();
+    }
+
+    /**
+     * Uncached, as {@link #isLegalMoveCold}
+     */
+    @Benchmark
+    public GameStatus statusCold() {
+        int i = next();
+        this.games[i].move(this.moves[i]);
+        this.games[i].undo();
+        return this.games[i].status();
+    }
+
+    @Benchmark
+    public Board boardCopy() {
+        return this.boards[next()].copy();
+    }
+}
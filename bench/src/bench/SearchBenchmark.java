@@ -0,0 +1,71 @@
+package bench;
+
+import core.ChessGame;
+import core.engine.Search;
+import core.engine.SearchFeature;
+import core.engine.SearchLimits;
+import core.engine.TranspositionTable;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to depth of {@link Search} with one {@link SearchFeature} turned off
+ * at a time ({@code none} for the full search, {@code all} for plain
+ * alpha-beta), over the middlegame {@link Corpus}. The nodes secondary
+ * result gives the node count to depth.
+ * <p>
+ * Run with {@code BenchmarkRunner SearchBenchmark}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class SearchBenchmark {
+    private static final int DEPTH = 6;
+
+    @Param({"none", "PVS", "NULL_MOVE", "LMR", "ASPIRATION", "all"})
+    public String disabled;
+
+    private ChessGame[] games;
+    private TranspositionTable table;
+    private int cursor;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Nodes {
+        public long nodes;
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        var fens = Corpus.Middlegame.fens();
+        this.games = new ChessGame[fens.length];
+        for (int i = 0; i < fens.length; i++) {
+            this.games[i] = ChessGame.fromFen(fens[i]);
+        }
+        this.table = new TranspositionTable(Search.DEFAULT_HASH_MB);
+    }
+
+    @Setup(Level.Invocation)
+    public void clearTable() {
+        this.table.clear();
+    }
+
+    @Benchmark
+    public int timeToDepth(Nodes nodes) {
+        var game = this.games[this.cursor];
+        this.cursor = (this.cursor + 1) % this.games.length;
+
+        var search = new Search(game, this.table);
+        for (var feature : SearchFeature.values()) {
+            if (this.disabled.equals("all") || this.disabled.equals(feature.name()))
+                search.setEnabled(feature, false);
+        }
+        var result = search.search(SearchLimits.depth(DEPTH));
+        nodes.nodes += result.nodes();
+        return result.move();
+    }
+}
@@ -0,0 +1,49 @@
+package bench;
+
+import core.ChessGame;
+import core.engine.ParallelSearch;
+import core.engine.SearchLimits;
+import core.engine.SearchResult;
+import core.engine.TranspositionTable;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to depth of {@link ParallelSearch} by thread count: each invocation
+ * searches a middlegame position to {@link #DEPTH} from an empty table, so
+ * the scores show how the wall time scales from 1 to 8 threads.
+ * <p>
+ * Run with {@code BenchmarkRunner SmpBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class SmpBenchmark {
+    private static final int DEPTH = 7;
+
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    private ChessGame game;
+    private TranspositionTable table;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        this.game = ChessGame.fromFen(Corpus.Middlegame.fens()[0]);
+        this.table = new TranspositionTable(64);
+    }
+
+    @Setup(Level.Invocation)
+    public void clearTable() {
+        this.table.clear();
+    }
+
+    @Benchmark
+    public SearchResult timeToDepth() {
+        return new ParallelSearch(this.game, this.threads, this.table).search(SearchLimits.depth(DEPTH));
+    }
+}
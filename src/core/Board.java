@@ -1,40 +1,86 @@
 package core;
 
+import core.bitboard.Attacks;
+import core.bitboard.Bitboards;
 import core.move.Move;
-import core.square.File;
-import core.square.Rank;
 import core.square.Square;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.NoSuchElementException;
 import java.util.Optional;
 
+/**
+ * Bitboard backed board.
+ * <p>
+ * The position is stored as one 64-bit set per coloured piece (indexed by
+ * {@code color * 6 + type}), an occupancy set per colour, and a square
+ * indexed mailbox for O(1) piece lookups. See {@link Bitboards} for the
+ * square indexing.
+ * <p>
+ * Placing and removing a piece also updates running totals of the
+ * {@link PieceSquareTables piece-square table} entries and of the game
+ * phase, for the evaluation of a search, and of a Zobrist key of the
+ * pawns alone, for caching pawn structure terms.
+ */
 public final class Board {
-    private final Piece[][] board;
+    /**
+     * The game phase of the initial position
+     */
+    public static final int MAX_PHASE = PieceSquareTables.MAX_PHASE;
+
+    private final long[] pieces;
+    private final long[] colors;
+    private final Piece[] mailbox;
+    private long occupied;
+    private int midgame;
+    private int endgame;
+    private int phase;
+    private long pawnKey;
 
 
     Board() {
-        this.board = new Piece[8][8];
+        this.pieces = new long[12];
+        this.colors = new long[2];
+        this.mailbox = new Piece[64];
+        this.occupied = 0L;
     }
 
     Board(Piece[][] pieces) {
-        this.board = pieces;
+        this();
+        for (int rank = 0; rank < 8; rank++) {
+            for (int file = 0; file < 8; file++) {
+                if (pieces[rank][file] != null)
+                    put(rank * 8 + file, pieces[rank][file]);
+            }
+        }
+    }
+
+    private Board(@NotNull Board other) {
+        this.pieces = other.pieces.clone();
+        this.colors = other.colors.clone();
+        this.mailbox = other.mailbox.clone();
+        this.occupied = other.occupied;
+        this.midgame = other.midgame;
+        this.endgame = other.endgame;
+        this.phase = other.phase;
+        this.pawnKey = other.pawnKey;
     }
 
     static @NotNull Board defaultBoard() {
-        var wp = new Piece(PieceType.Pawn, Color.White);
-        var wn = new Piece(PieceType.Knight, Color.White);
-        var wb = new Piece(PieceType.Bishop, Color.White);
-        var wr = new Piece(PieceType.Rook, Color.White);
-        var wq = new Piece(PieceType.Queen, Color.White);
-        var wk = new Piece(PieceType.King, Color.White);
-        var bp = new Piece(PieceType.Pawn, Color.Black);
-        var bn = new Piece(PieceType.Knight, Color.Black);
-        var bb = new Piece(PieceType.Bishop, Color.Black);
-        var br = new Piece(PieceType.Rook, Color.Black);
-        var bq = new Piece(PieceType.Queen, Color.Black);
-        var bk = new Piece(PieceType.King, Color.Black);
+        var wp = Piece.of(PieceType.Pawn, Color.White);
+        var wn = Piece.of(PieceType.Knight, Color.White);
+        var wb = Piece.of(PieceType.Bishop, Color.White);
+        var wr = Piece.of(PieceType.Rook, Color.White);
+        var wq = Piece.of(PieceType.Queen, Color.White);
+        var wk = Piece.of(PieceType.King, Color.White);
+        var bp = Piece.of(PieceType.Pawn, Color.Black);
+        var bn = Piece.of(PieceType.Knight, Color.Black);
+        var bb = Piece.of(PieceType.Bishop, Color.Black);
+        var br = Piece.of(PieceType.Rook, Color.Black);
+        var bq = Piece.of(PieceType.Queen, Color.Black);
+        var bk = Piece.of(PieceType.King, Color.Black);
         Piece xx = null;
 
         var board = new Piece[][]{
@@ -53,18 +99,15 @@ public final class Board {
 
 
     public BoardPiece getKing(Color color) {
-        return getPieces().stream()
-                .filter(piece -> piece.piece().type() == PieceType.King)
-                .filter(piece -> piece.color() == color)
-                .findFirst()
-                .orElseThrow(() -> new NoSuchElementException("No king found"));
+        long king = this.pieces[color.ordinal() * 6 + PieceType.King.ordinal()];
+        if (king == 0) throw new NoSuchElementException("No king found");
+
+        int index = Bitboards.first(king);
+        return new BoardPiece(this.mailbox[index], Square.of(index));
     }
 
     public Optional<BoardPiece> getPiece(@NotNull Square square) {
-        int row = square.rank().ordinal();
-        int col = square.file().ordinal();
-
-        return Optional.ofNullable(this.board[row][col])
+        return Optional.ofNullable(this.mailbox[square.index()])
                 .map(piece -> new BoardPiece(piece, square));
     }
 
@@ -72,50 +115,203 @@ public final class Board {
      * @return all the pieces on the board
      */
     public @NotNull ArrayList<BoardPiece> getPieces() {
-        var pieces = new ArrayList<BoardPiece>();
-        for (var rank : Rank.values()) {
-            for (var file : File.values()) {
-                getPiece(new Square(file, rank))
-                        .ifPresent(pieces::add);
-            }
+        var pieces = new ArrayList<BoardPiece>(Long.bitCount(this.occupied));
+        for (long set = this.occupied; set != 0; set &= set - 1) {
+            int index = Bitboards.first(set);
+            pieces.add(new BoardPiece(this.mailbox[index], Square.of(index)));
         }
         return pieces;
     }
 
+    /**
+     * @param index the square index (0..63)
+     * @return the piece on the square, or null if the square is empty
+     */
+    public Piece pieceAt(int index) {
+        return this.mailbox[index];
+    }
+
+    /**
+     * @return the set of squares occupied by pieces of the given type and
+     * color
+     */
+    public long pieces(@NotNull PieceType type, @NotNull Color color) {
+        return this.pieces[color.ordinal() * 6 + type.ordinal()];
+    }
+
+    /**
+     * @return the set of squares occupied by pieces of the given color
+     */
+    public long pieces(@NotNull Color color) {
+        return this.colors[color.ordinal()];
+    }
+
+    /**
+     * @return the number of pieces of the given type and color
+     */
+    public int count(@NotNull PieceType type, @NotNull Color color) {
+        return Long.bitCount(this.pieces[color.ordinal() * 6 + type.ordinal()]);
+    }
+
+    /**
+     * @return the number of pieces of the given color
+     */
+    public int count(@NotNull Color color) {
+        return Long.bitCount(this.colors[color.ordinal()]);
+    }
+
+    /**
+     * @return the set of occupied squares
+     */
+    public long occupied() {
+        return this.occupied;
+    }
+
+    /**
+     * @return the index of the king of the given color, or 64 if there is
+     * none
+     */
+    public int kingSquare(@NotNull Color color) {
+        return Bitboards.first(this.pieces[color.ordinal() * 6 + PieceType.King.ordinal()]);
+    }
+
+    /**
+     * @return the sum of the midgame piece-square values (material
+     * included) of the pieces, in centipawns with white ahead as positive
+     */
+    public int midgame() {
+        return this.midgame;
+    }
+
+    /**
+     * @return the sum of the endgame piece-square values, as for
+     * {@link #midgame()}
+     */
+    public int endgame() {
+        return this.endgame;
+    }
+
+    /**
+     * @return the game phase: {@value #MAX_PHASE} (or more, after
+     * promotions) with all the pieces on the board, down to 0 with kings
+     * and pawns only
+     */
+    public int phase() {
+        return this.phase;
+    }
+
+    /**
+     * @return a Zobrist key of the pawns alone (0 without pawns): equal for
+     * boards with the same pawns on the same squares
+     */
+    public long pawnKey() {
+        return this.pawnKey;
+    }
+
+    public boolean isOccupied(@NotNull Square square) {
+        return Bitboards.contains(this.occupied, square.index());
+    }
+
+    /**
+     * @param square the square to test
+     * @param by     the attacking color
+     * @return if any piece of the given color attacks the square
+     */
+    public boolean isSquareAttacked(@NotNull Square square, @NotNull Color by) {
+        return isSquareAttacked(square.index(), by);
+    }
+
+    /**
+     * @see #isSquareAttacked(Square, Color)
+     */
+    public boolean isSquareAttacked(int square, @NotNull Color by) {
+        return attackersTo(square, by, this.occupied) != 0;
+    }
+
+    /**
+     * Works outward from the target square: a piece of type T attacks the
+     * square iff a T placed on the square (of the other color for pawns)
+     * would attack it.
+     *
+     * @param square   the target square
+     * @param by       the attacking color
+     * @param occupied the occupancy used for slider rays
+     * @return the set of pieces of the given color attacking the square
+     */
+    public long attackersTo(int square, @NotNull Color by, long occupied) {
+        int base = by.ordinal() * 6;
+        long queens = this.pieces[base + PieceType.Queen.ordinal()];
+        return (Attacks.pawn(by.opposite(), square) & this.pieces[base + PieceType.Pawn.ordinal()])
+                | (Attacks.knight(square) & this.pieces[base + PieceType.Knight.ordinal()])
+                | (Attacks.king(square) & this.pieces[base + PieceType.King.ordinal()])
+                | (Attacks.bishop(square, occupied) & (this.pieces[base + PieceType.Bishop.ordinal()] | queens))
+                | (Attacks.rook(square, occupied) & (this.pieces[base + PieceType.Rook.ordinal()] | queens));
+    }
+
     /**
      * @param move Unchecked move to make:
      *             the move doesn't have to be legal
      */
     void move(@NotNull Move move) {
-        int toRow = move.to().rank().ordinal();
-        int toCol = move.to().file().ordinal();
-        int fromRow = move.from().rank().ordinal();
-        int fromCol = move.from().file().ordinal();
+        int from = move.from().index();
+        int to = move.to().index();
 
-        this.board[toRow][toCol] = this.board[fromRow][fromCol];
-        this.board[fromRow][fromCol] = null;
+        var piece = this.mailbox[from];
+        if (piece == null) return;
+
+        remove(from);
+        remove(to);
+        put(to, piece);
     }
 
     public @NotNull Board copy() {
-        var board = new Board();
-        for (int rank = 0; rank < 8; rank++) {
-            System.arraycopy(this.board[rank], 0, board.board[rank], 0, 8);
-        }
-        return board;
+        return new Board(this);
     }
 
     void setPiece(@NotNull Square square, Piece boardPiece) {
-        int row = square.rank().ordinal();
-        int col = square.file().ordinal();
-
-        this.board[row][col] = boardPiece;
+        int index = square.index();
+        remove(index);
+        if (boardPiece != null) put(index, boardPiece);
     }
 
     void removePiece(@NotNull Square square) {
-        int row = square.rank().ordinal();
-        int col = square.file().ordinal();
+        remove(square.index());
+    }
+
+    /**
+     * Place a piece on an empty square
+     */
+    void put(int index, @NotNull Piece piece) {
+        long bit = Bitboards.bit(index);
+        this.pieces[piece.index()] |= bit;
+        this.colors[piece.color().ordinal()] |= bit;
+        this.occupied |= bit;
+        this.mailbox[index] = piece;
+        this.midgame += PieceSquareTables.midgame(piece, index);
+        this.endgame += PieceSquareTables.endgame(piece, index);
+        this.phase += PieceSquareTables.phase(piece);
+        if (piece.type() == PieceType.Pawn) this.pawnKey ^= Zobrist.piece(piece, index);
+    }
+
+    /**
+     * Remove the piece (if any) on a square
+     *
+     * @return the removed piece, or null if the square was empty
+     */
+    Piece remove(int index) {
+        var piece = this.mailbox[index];
+        if (piece == null) return null;
 
-        this.board[row][col] = null;
+        long bit = Bitboards.bit(index);
+        this.pieces[piece.index()] &= ~bit;
+        this.colors[piece.color().ordinal()] &= ~bit;
+        this.occupied &= ~bit;
+        this.mailbox[index] = null;
+        this.midgame -= PieceSquareTables.midgame(piece, index);
+        this.endgame -= PieceSquareTables.endgame(piece, index);
+        this.phase -= PieceSquareTables.phase(piece);
+        if (piece.type() == PieceType.Pawn) this.pawnKey ^= Zobrist.piece(piece, index);
+        return piece;
     }
 
     @Override
@@ -123,8 +319,9 @@ public final class Board {
         var builder = new StringBuilder();
         for (int rank = 7; rank >= 0; rank--) {
             for (int file = 0; file < 8; file++) {
-                if (this.board[rank][file] != null) {
-                    builder.append(this.board[rank][file].unicodeSym());
+                var piece = this.mailbox[rank * 8 + file];
+                if (piece != null) {
+                    builder.append(piece.unicodeSym());
                 } else {
                     builder.append('□');
                 }
@@ -139,54 +336,56 @@ public final class Board {
      * @return A hex hash of the board
      */
     public String toHash() {
-        var s = new StringBuilder();
-        for (var row : board) {
-            for (int i = 0; i < 8; i++) {
-                char ch;
-                if (row[i] == null) {
-                    ch = '_';
-                } else {
-                    ch = switch (row[i].type()) {
-                        case Pawn -> 'p';
-                        case Knight -> 'n';
-                        case Bishop -> 'b';
-                        case Rook -> 'r';
-                        case Queen -> 'q';
-                        case King -> 'k';
-                    };
-                    if (row[i].color() == Color.Black)
-                        ch = Character.toUpperCase(ch);
-                }
-
-                s.append(ch);
+        var s = new StringBuilder(64);
+        for (var piece : this.mailbox) {
+            char ch;
+            if (piece == null) {
+                ch = '_';
+            } else {
+                ch = switch (piece.type()) {
+                    case Pawn -> 'p';
+                    case Knight -> 'n';
+                    case Bishop -> 'b';
+                    case Rook -> 'r';
+                    case Queen -> 'q';
+                    case King -> 'k';
+                };
+                if (piece.color() == Color.Black)
+                    ch = Character.toUpperCase(ch);
             }
+
+            s.append(ch);
         }
         return s.toString();
     }
 
     void restoreFromHash(String boardHash) {
         assert boardHash.length() == 64;
-        for (int i = 0; i < 8; i++) {
-            for (int j = 0; j < 8; j++) {
-                char ch = boardHash.charAt(i * 8 + j);
-                var pieceType = switch (Character.toLowerCase(ch)) {
-                    case 'p' -> PieceType.Pawn;
-                    case 'n' -> PieceType.Knight;
-                    case 'b' -> PieceType.Bishop;
-                    case 'r' -> PieceType.Rook;
-                    case 'q' -> PieceType.Queen;
-                    case 'k' -> PieceType.King;
-                    default -> null;
-                };
+        Arrays.fill(this.pieces, 0L);
+        Arrays.fill(this.colors, 0L);
+        Arrays.fill(this.mailbox, null);
+        this.occupied = 0L;
+        this.midgame = 0;
+        this.endgame = 0;
+        this.phase = 0;
+        this.pawnKey = 0L;
 
-                Piece piece = null;
-                if (pieceType != null) {
-                    var color = Character.isUpperCase(ch) ? Color.Black :
-                            Color.White;
-                    piece = new Piece(pieceType, color);
-                }
+        for (int i = 0; i < 64; i++) {
+            char ch = boardHash.charAt(i);
+            var pieceType = switch (Character.toLowerCase(ch)) {
+                case 'p' -> PieceType.Pawn;
+                case 'n' -> PieceType.Knight;
+                case 'b' -> PieceType.Bishop;
+                case 'r' -> PieceType.Rook;
+                case 'q' -> PieceType.Queen;
+                case 'k' -> PieceType.King;
+                default -> null;
+            };
 
-                this.board[i][j] = piece;
+            if (pieceType != null) {
+                var color = Character.isUpperCase(ch) ? Color.Black :
+                        Color.White;
+                put(i, Piece.of(pieceType, color));
             }
         }
     }
@@ -2,34 +2,34 @@ package core;
 
 record CastleRights(boolean whiteKingside, boolean whiteQueenside,
                     boolean blackKingside, boolean blackQueenside) {
+    static final int WHITE_KINGSIDE = 1;
+    static final int WHITE_QUEENSIDE = 2;
+    static final int BLACK_KINGSIDE = 4;
+    static final int BLACK_QUEENSIDE = 8;
+
     CastleRights() {
         this(true, true, true, true);
     }
 
-    CastleRights disableKingside(Color color) {
-        return switch (color) {
-            case White ->
-                    new CastleRights(false, this.whiteQueenside, this.blackKingside, this.blackQueenside);
-            case Black ->
-                    new CastleRights(this.whiteKingside, this.whiteQueenside, false, this.blackQueenside);
-        };
-    }
-
-    CastleRights disableQueenside(Color color) {
-        return switch (color) {
-            case White ->
-                    new CastleRights(this.whiteKingside, false, this.blackKingside, this.blackQueenside);
-            case Black ->
-                    new CastleRights(this.whiteKingside, this.whiteQueenside, this.blackKingside, false);
-        };
+    /**
+     * @param bits the rights packed as returned by {@link #bits()}
+     */
+    static CastleRights fromBits(int bits) {
+        return new CastleRights(
+                (bits & WHITE_KINGSIDE) != 0,
+                (bits & WHITE_QUEENSIDE) != 0,
+                (bits & BLACK_KINGSIDE) != 0,
+                (bits & BLACK_QUEENSIDE) != 0
+        );
     }
 
-    CastleRights disableBoth(Color color) {
-        return switch (color) {
-            case White ->
-                    new CastleRights(false, false, this.blackKingside, this.blackQueenside);
-            case Black ->
-                    new CastleRights(this.whiteKingside, this.whiteQueenside, false, false);
-        };
+    /**
+     * @return the rights packed into 4 bits
+     */
+    int bits() {
+        return (this.whiteKingside ? WHITE_KINGSIDE : 0)
+                | (this.whiteQueenside ? WHITE_QUEENSIDE : 0)
+                | (this.blackKingside ? BLACK_KINGSIDE : 0)
+                | (this.blackQueenside ? BLACK_QUEENSIDE : 0);
     }
 }
@@ -1,41 +1,87 @@
 package core;
 
+import core.bitboard.Attacks;
+import core.bitboard.Bitboards;
 import core.move.*;
-import core.square.File;
 import core.square.Rank;
 import core.square.Square;
 import org.jetbrains.annotations.NotNull;
-import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Objects;
 import java.util.Optional;
-import java.util.function.Function;
-import java.util.stream.Collectors;
 
 public class ChessGame {
-    private final Board board;
-    private final ArrayList<GameMemo> history;
-    private Color toMove;
-    private CastleRights castleRights;
-    private File enPassantTarget;
-    private int fiftyMoveRule;
+    private final Position position;
+    private final MoveGenerator generator;
+    private final MoveLog history;
+    private final HashMap<Long, Integer> repetitions;
+
+    /*
+     * Legal targets of the squares of the current position, each filled on
+     * first use (the squares in legalTargetsKnown) and all dropped on
+     * move/undo. The status only needs to know if there is any legal move,
+     * which the generator answers without generating them all.
+     */
+    private final long[] legalTargets;
+    private long legalTargetsKnown;
+    // if the generator was refreshed for the current position
+    private boolean generatorFresh;
 
     public ChessGame() {
-        this.board = Board.defaultBoard();
-        this.toMove = Color.White;
-        this.castleRights = new CastleRights();
-        this.enPassantTarget = null;
-        this.fiftyMoveRule = 50;
-
-        this.history = new ArrayList<>();
-        this.history.add(new GameMemo(this, null));
+        this(Position.initial());
+    }
+
+    private ChessGame(@NotNull Position position) {
+        this.position = position;
+        this.generator = new MoveGenerator(this.position);
+
+        this.history = new MoveLog(position);
+        this.repetitions = new HashMap<>();
+        this.legalTargets = new long[64];
+        this.repetitions.merge(this.position.key(), 1, Integer::sum);
+    }
+
+    /**
+     * @param fen the starting position in Forsyth-Edwards Notation
+     * @return a game starting from that position
+     * @throws IllegalArgumentException if the FEN is malformed
+     * @see Position#fromFen(String)
+     */
+    public static ChessGame fromFen(@NotNull String fen) throws IllegalArgumentException {
+        return new ChessGame(Position.fromFen(fen));
+    }
+
+    /**
+     * @return the Zobrist key of the current position (pieces, side to move,
+     * castle rights and en passant file)
+     */
+    public long positionKey() {
+        return this.position.key();
+    }
+
+    /**
+     * @return the Zobrist keys of every position of the game so far, from
+     * the starting position to the current one
+     */
+    public long[] positionKeys() {
+        return this.history.keys();
     }
 
     /**
      * @return a copy of the current board
      */
     public Board board() {
-        return this.board.copy();
+        return this.position.board().copy();
+    }
+
+    /**
+     * @return a copy of the current position, to make/unmake moves on
+     * without affecting the game
+     */
+    public Position position() {
+        return this.position.copy();
     }
 
 
@@ -54,7 +100,7 @@ public class ChessGame {
      */
     public Optional<QualifiedMove> undo(int count) {
         assert count > 0;
-        return rollback(history.size() - 1 - count);
+        return rollback(this.history.size() - count);
     }
 
     /**
@@ -65,15 +111,21 @@ public class ChessGame {
      */
     public Optional<QualifiedMove> undo(int moveNo, Color player) {
         int idx = (moveNo - 1) * 2 + (player == Color.Black ? 1 : 0);
-        assert idx >= 0 && idx < this.history.size();
+        assert idx >= 0 && idx <= this.history.size();
         return rollback(idx);
     }
 
+    /**
+     * @param idx the number of plies to keep
+     * @return the last move kept
+     */
     private Optional<QualifiedMove> rollback(int idx) {
-        var gameMemo = this.history.get(idx);
-        gameMemo.restoreGame(this);
-        this.history.subList(idx + 1, this.history.size()).clear();
-        return Optional.ofNullable(gameMemo.lastMove());
+        Objects.checkIndex(idx, this.history.size() + 1);
+        while (this.history.size() > idx) {
+            this.repetitions.merge(this.history.pop(this.position), -1, Integer::sum);
+        }
+        invalidateLegalMoves();
+        return Optional.ofNullable(this.history.qualifiedMove(idx));
     }
 
     public boolean isPromotionMove(Move move) {
@@ -82,7 +134,7 @@ public class ChessGame {
 
         Square source = move.from();
         Square target = move.to();
-        var piece = this.board.getPiece(source).orElseThrow();
+        var piece = this.position.board().getPiece(source).orElseThrow();
 
         return piece.type() == PieceType.Pawn && (target.rank() == Rank._8 || target.rank() == Rank._1);
     }
@@ -112,25 +164,23 @@ public class ChessGame {
 
         Square source = move.from();
         Square target = move.to();
+        var board = this.position.board();
 
         var retMove = new QualifiedMoveBuilder();
-        var piece = this.board.getPiece(source).orElseThrow();
-        var capturedPiece = this.board.getPiece(target);
+        var piece = board.getPiece(source).orElseThrow();
+        var capturedPiece = board.getPiece(target);
 
         /*
          * check if the move requires disambiguation
          * https://en.m.wikipedia.org/wiki/Algebraic_notation_(chess)#Disambiguating_moves
          */
-        var pieces = this.board.getPieces().stream()
-                .filter(bp -> bp.type() == piece.type())
-                .filter(bp -> !bp.square().equals(source))
-                .filter(bp -> isLegalMove(new Move(bp.square(), target)))
-                .toList();
-
-        if (!pieces.isEmpty()) {
-            if (pieces.stream().noneMatch(bp -> bp.square().file() == source.file())) {
+        int from = source.index();
+        long pieces = sameTypeMovers(piece.piece(), from, target.index());
+
+        if (pieces != 0) {
+            if ((pieces & Bitboards.fileMask(from)) == 0) {
                 retMove.disambiguateFile();
-            } else if (pieces.stream().noneMatch(bp -> bp.square().rank() == source.rank())) {
+            } else if ((pieces & Bitboards.rankMask(from)) == 0) {
                 retMove.disambiguateRank();
             } else {
                 retMove.disambiguateFile();
@@ -138,65 +188,31 @@ public class ChessGame {
             }
         }
 
-        // Do move :)
-        this.board.move(move);
-
         retMove.piece(piece.piece())
                 .source(source)
                 .target(target)
                 .capture(capturedPiece.map(BoardPiece::type).orElse(null));
 
-
-        // Promotion & En passant
         if (piece.type() == PieceType.Pawn) {
             // Promotion
             if (target.rank() == Rank._8 || target.rank() == Rank._1) {
-                this.board.setPiece(
-                        target,
-                        new Piece(move.promotion()
-                                .orElseThrow(() -> new IllegalArgumentException("Missing promotion")),
-                                piece.color()
-                        )
-                );
-
-                retMove.promotion(move.promotion().orElse(null));
+                var promotion = move.promotion()
+                        .orElseThrow(() -> new IllegalArgumentException("Missing promotion"));
+                if (!PackedMove.isPromotionPiece(promotion))
+                    throw new IllegalArgumentException("Invalid promotion: " + promotion);
+                retMove.promotion(promotion);
             }
 
-            // EnPassant Remove captured pawn
+            // En passant
             if (target.file() != source.file() && capturedPiece.isEmpty()) {
-                this.board.removePiece(new Square(target.file(), source.rank()));
                 retMove.enPassant(true)
                         .capture(PieceType.Pawn);
             }
-
-            // En passant target to check for en passant next turn
-            switch (target.rank().sub(source.rank())) {
-                case 2, -2 -> this.enPassantTarget = target.file();
-                default -> this.enPassantTarget = null;
-            }
-        } else {
-            this.enPassantTarget = null;
         }
 
         // Castle
-        var isCastleMove = piece.type() == PieceType.King
-                && Math.abs(source.file().sub(target.file())) == 2;
-
-        // Castle (move the rook)
-        if (isCastleMove) {
-            Rank rank = target.rank();
-            var rookFrom = switch (target.file()) {
-                case C -> new Square(File.A, rank);
-                case G -> new Square(File.H, rank);
-                default -> throw new RuntimeException("Invalid castle");
-            };
-            var rookTo = switch (target.file()) {
-                case C -> new Square(File.D, rank);
-                case G -> new Square(File.F, rank);
-                default -> throw new RuntimeException("Invalid castle");
-            };
-            this.board.move(new Move(rookFrom, rookTo));
-
+        if (piece.type() == PieceType.King
+                && Math.abs(source.file().sub(target.file())) == 2) {
             retMove.castle(switch (target.file()) {
                 case C -> CastleType.Long;
                 case G -> CastleType.Short;
@@ -204,32 +220,11 @@ public class ChessGame {
             });
         }
 
-        // Update Castling Rights
-        if (piece.type() == PieceType.King) {
-            this.castleRights = this.castleRights.disableBoth(piece.color());
-        }
-        if (piece.type() == PieceType.Rook) {
-            var cr = this.castleRights;
-            if (piece.square().equals(new Square(File.A, Rank._1)))
-                this.castleRights = cr.disableQueenside(Color.White);
-            else if (piece.square().equals(new Square(File.H, Rank._1)))
-                this.castleRights = cr.disableKingside(Color.White);
-            else if (piece.square().equals(new Square(File.A, Rank._8)))
-                this.castleRights = cr.disableQueenside(Color.Black);
-            else if (piece.square().equals(new Square(File.H, Rank._8)))
-                this.castleRights = cr.disableKingside(Color.Black);
-        }
-
-
-        // update fifty move rule
-        if (capturedPiece.isPresent() || piece.type() == PieceType.Pawn) {
-            this.fiftyMoveRule = 0;
-        } else {
-            this.fiftyMoveRule++;
-        }
-
-        // Update turn
-        this.toMove = this.toMove == Color.White ? Color.Black : Color.White;
+        // Do move :)
+        int packed = this.position.pack(move);
+        long undo = this.position.makeMove(packed);
+        invalidateLegalMoves();
+        repetitions.merge(this.position.key(), 1, Integer::sum);
 
         // game over conditions
         retMove.status(gameStateCheck());
@@ -237,12 +232,58 @@ public class ChessGame {
         var qualifiedMove = retMove.build();
 
         // update history
-        history.add(new GameMemo(this, qualifiedMove));
+        history.push(packed, undo, this.position, qualifiedMove);
         return qualifiedMove;
     }
 
+    /**
+     * @param move the {@link PackedMove packed move} to make
+     * @see #move(Move)
+     */
+    public QualifiedMove move(int move) throws IllegalArgumentException {
+        return move(PackedMove.toMove(move));
+    }
+
+    /**
+     * The pieces that reach the target are found with one reverse attack
+     * lookup (a piece of the type standing on the target attacks them);
+     * only those few are checked for legality.
+     *
+     * @param piece the moving piece
+     * @param from  the square it moves from
+     * @param to    the square it moves to
+     * @return the other pieces of the same type and color that could
+     * legally move to the target square
+     */
+    private long sameTypeMovers(@NotNull Piece piece, int from, int to) {
+        var board = this.position.board();
+        long occupied = board.occupied();
+        long candidates = board.pieces(piece.type(), piece.color()) & ~Bitboards.bit(from);
+        candidates &= switch (piece.type()) {
+            // pawns only share a target square when capturing
+            case Pawn -> ((from ^ to) & 7) == 0 ? Bitboards.EMPTY
+                    : Attacks.pawn(piece.color().opposite(), to);
+            case Knight -> Attacks.knight(to);
+            case Bishop -> Attacks.bishop(to, occupied);
+            case Rook -> Attacks.rook(to, occupied);
+            case Queen -> Attacks.queen(to, occupied);
+            case King -> Bitboards.EMPTY;
+        };
+        if (candidates == 0) return Bitboards.EMPTY;
+
+        long movers = 0L;
+        for (; candidates != 0; candidates &= candidates - 1) {
+            int square = Bitboards.first(candidates);
+            if (Bitboards.contains(legalTargets(square), to))
+                movers |= Bitboards.bit(square);
+        }
+        return movers;
+    }
+
     public boolean isLegalMove(@NotNull Move move) {
-        return getLegalMoves(move.from()).contains(move.to());
+        if (move.promotion().isPresent() && !PackedMove.isPromotionPiece(move.promotion().get()))
+            return false;
+        return Bitboards.contains(legalTargets(move.from().index()), move.to().index());
     }
 
     /**
@@ -251,54 +292,89 @@ public class ChessGame {
      * or an empty list if there is no piece on the square/no legal moves
      */
     public ArrayList<Square> getLegalMoves(Square square) {
-        return board.getPiece(square)
+        return this.position.board().getPiece(square)
                 .map(this::getLegalMoves)
                 .orElse(new ArrayList<>());
     }
 
+    /**
+     * Write all legal moves of the current position into a caller-owned
+     * buffer, without allocating.
+     *
+     * @param buffer the buffer to fill with {@link PackedMove packed moves},
+     *               of at least {@link MoveGenerator#MAX_MOVES} length
+     * @return the number of moves written
+     */
+    public int generateLegalMoves(int[] buffer) {
+        refreshGenerator();
+        return this.generator.generate(buffer);
+    }
+
+    /**
+     * @return if the side to move has at least one legal move
+     */
+    public boolean hasAnyLegalMove() {
+        refreshGenerator();
+        return this.generator.hasAnyLegalMove();
+    }
+
+    /**
+     * @return the legal targets of the piece on the square (none for an
+     * empty square or a piece of the side not to move), cached
+     */
+    private long legalTargets(int square) {
+        if (!Bitboards.contains(this.legalTargetsKnown, square)) {
+            refreshGenerator();
+            this.legalTargets[square] = this.generator.targets(square);
+            this.legalTargetsKnown |= Bitboards.bit(square);
+        }
+        return this.legalTargets[square];
+    }
+
+    private void refreshGenerator() {
+        if (this.generatorFresh) return;
+        this.generator.refresh();
+        this.generatorFresh = true;
+    }
+
+    private void invalidateLegalMoves() {
+        this.legalTargetsKnown = Bitboards.EMPTY;
+        this.generatorFresh = false;
+    }
+
+    /**
+     * @return the status of the current position (check, checkmate,
+     * stalemate, draw...)
+     */
+    public GameStatus status() {
+        return gameStateCheck();
+    }
+
     /**
      * @return the current game state (check, checkmate, stalemate, draw...)
      */
     private GameStatus gameStateCheck() {
-        Function<Color, Boolean> isInsufficientMaterial = (color) -> {
-            var material = this.board.getPieces().stream()
-                    .filter(p -> p.color() == color)
-                    .map(BoardPiece::type)
-                    .toList();
-
-            return switch (material.size()) {
-                case 1 -> true;
-                case 2 -> material.contains(PieceType.Bishop)
-                        || material.contains(PieceType.Knight);
-                default -> false;
-            };
-        };
+        var toMove = this.position.toMove();
 
+        // stops at the first legal move found
+        var noLegalMoves = !hasAnyLegalMove();
         var isCheck = isInCheck();
-        var noLegalMoves = this.board.getPieces()
-                .stream()
-                .filter(p -> p.color() == this.toMove)
-                .map(this::getLegalMoves)
-                .mapToInt(ArrayList::size)
-                .sum() == 0;
 
-        var threeFoldRepetition = this.history
-                .stream()
-                .filter(memo -> memo.isSamePosition(this))
-                .count() >= 2;
+        var threeFoldRepetition = this.repetitions
+                .getOrDefault(this.position.key(), 0) >= 3;
 
 
         if (noLegalMoves) {
-            return isCheck ? switch (this.toMove) {
+            return isCheck ? switch (toMove) {
                 case Black -> GameStatus.WhiteWins;
                 case White -> GameStatus.BlackWins;
             } : GameStatus.Stalemate;
-        } else if (fiftyMoveRule == 50) {
+        } else if (this.position.halfmoveClock() >= 100) {
             return GameStatus.Draw;
         } else if (threeFoldRepetition) {
             return GameStatus.Draw;
-        } else if (isInsufficientMaterial.apply(Color.Black)
-                && isInsufficientMaterial.apply(Color.White)) {
+        } else if (isInsufficientMaterial(Color.Black)
+                && isInsufficientMaterial(Color.White)) {
             return GameStatus.InsufficientMaterial;
         } else {
             if (isCheck) {
@@ -311,190 +387,54 @@ public class ChessGame {
     }
 
     /**
-     * @param piece the piece to get legal moves for
-     * @return a list of legal moves for the piece
+     * @return if the color has a lone king, or a king and a single bishop
+     * or knight
      */
-    private ArrayList<Square> getLegalMoves(@NotNull BoardPiece piece) {
-        if (piece.color() != this.toMove) return new ArrayList<>();
-
-        return piece
-                .getMoves(this.board, this.enPassantTarget, getCastleRights())
-                .stream()
-                .filter(target -> board.getPiece(target)
-                        .map(p -> piece.color() != p.color())
-                        .orElse(true))
-                .filter(target -> lineOfSight(piece, target))
-                .filter(target -> !isInCheck(new Move(piece.square(), target)))
-                .collect(Collectors.toCollection(ArrayList::new));
+    private boolean isInsufficientMaterial(Color color) {
+        var board = this.position.board();
+        return switch (board.count(color)) {
+            case 1 -> true;
+            case 2 -> board.count(PieceType.Bishop, color) + board.count(PieceType.Knight, color) == 1;
+            default -> false;
+        };
     }
 
     /**
-     * @return The current castle rights
+     * @param piece the piece to get legal moves for
+     * @return a list of legal moves for the piece
      */
-    private @NotNull CastleRights getCastleRights() {
-        var king = this.board.getKing(toMove);
-        var square = king.square();
-
-        var canCastle = switch (king.color()) {
-            case White -> square.equals(new Square(File.E, Rank._1));
-            case Black -> square.equals(new Square(File.E, Rank._8));
-        } && !isInCheck();
-
-        if (!canCastle) return new CastleRights(false, false, false, false);
-
-        var kingSideCheck = isInCheck(new Move(square, square.uncheckedAdd(1, 0)));
-        var queenSideCheck = isInCheck(new Move(square, square.uncheckedAdd(-1, 0)))
-                || isInCheck(new Move(square, square.uncheckedAdd(-2, 0)));
-
-        return new CastleRights(
-                !kingSideCheck && this.castleRights.whiteKingside(),
-                !queenSideCheck && this.castleRights.whiteQueenside(),
-                !kingSideCheck && this.castleRights.blackKingside(),
-                !queenSideCheck && this.castleRights.blackQueenside()
-        );
+    private ArrayList<Square> getLegalMoves(@NotNull BoardPiece piece) {
+        if (piece.color() != this.position.toMove()) return new ArrayList<>();
+
+        return Bitboards.toSquares(legalTargets(piece.square().index()));
     }
 
     /**
      * @return If the king of the current player is in check
      */
     public boolean isInCheck() {
-        return isInCheck(null);
+        refreshGenerator();
+        return this.generator.checkers() != 0;
     }
 
     /**
-     * @param simulateMove Optional Move to apply before checking.
-     *                     (The move is not validated)
-     * @return If the king is in check after applying simulateMove.
-     * @throws java.util.NoSuchElementException If there is no king on the
-     *                                          board.
+     * @param i the number of moves played (0 is the starting position)
+     * @return a copy of the board after that many moves
      */
-    private boolean isInCheck(@Nullable Move simulateMove) {
-        var board = this.board.copy();
-
-
-        if (simulateMove != null) {
-            board.move(simulateMove);
-        }
-
-        var king = board.getKing(this.toMove);
-        return board.getPieces()
-                .stream()
-                .filter(piece -> piece.color() != this.toMove)
-                .filter(p -> lineOfSight(p, king.square(), board))
-                .flatMap(p -> p.getMoves(board, this.enPassantTarget, this.castleRights).stream())
-                .anyMatch(s -> s.equals(king.square()));
-    }
-
-
-    /**
-     * @param piece  the piece to check
-     * @param target the target square to check
-     * @return if there are no pieces between piece and target
-     * @implNote this method assumes that piece and target are on the same
-     * rank, file, or diagonal.
-     * <p>
-     * It does not check if piece can actually move to the target, but that
-     * it can potentially "see" it.
-     * use in conjunction with {@link BoardPiece#getMoves}
-     * to check if a piece can move to a square
-     */
-    private boolean lineOfSight(@NotNull BoardPiece piece, Square target) {
-        return lineOfSight(piece, target, this.board);
+    public Board peekBoard(Integer i) {
+        return this.history.positionAt(i).board();
     }
 
     /**
-     * @param piece  the piece to check
-     * @param target the target square to check
-     * @param board  the board to check on
-     * @return if there are no pieces between piece and target
-     * @implNote this method assumes that piece and target are on the same
-     * rank, file, or diagonal.
-     * <p>
-     * It does not check if piece can actually move to the target, but that
-     * it can potentially "see" it.
-     * use in conjunction with {@link BoardPiece#getMoves}
-     * to check if a piece can move to a square
+     * @param i the number of moves played
+     * @return the move that led to the board of {@link #peekBoard}, or null
+     * for the starting position
      */
-    private boolean lineOfSight(@NotNull BoardPiece piece, Square target, Board board) {
-        var source = piece.square();
-
-        // pieces can't move to their own square
-        if (source == target) return false;
-
-        // knights can jump over pieces
-        if (piece.type() == PieceType.Knight) return true;
-
-        var fileDir = Integer.signum(target.file().sub(source.file()));
-        var rankDir = Integer.signum(target.rank().sub(source.rank()));
-
-        while (true) {
-            var tryAdd = source.add(fileDir, rankDir);
-            if (tryAdd.isEmpty()) return false;
-            source = tryAdd.get();
-
-            if (source.equals(target)) return true;
-
-            if (board.getPiece(source).isPresent())
-                return false;
-        }
-    }
-
-    public Board peekBoard(Integer i) {
-        var board = new Board();
-        board.restoreFromHash(this.history.get(i).boardHash());
-        return board;
-    }
-
     public QualifiedMove peekMove(Integer i) {
-        return this.history.get(i).lastMove();
+        return this.history.qualifiedMove(i);
     }
 
     public int moveCount() {
-        return this.history.size() - 1;
-    }
-
-    private record GameMemo(
-            QualifiedMove lastMove,
-            String boardHash,
-            Color toMove,
-            CastleRights castleRights,
-            File enPassantTarget,
-            int fiftyMoveRule
-    ) {
-        GameMemo(ChessGame game, QualifiedMove lastMove) {
-            this(lastMove,
-                    game.board.toHash(),
-                    game.toMove,
-                    game.castleRights,
-                    game.enPassantTarget,
-                    game.fiftyMoveRule
-            );
-        }
-
-        void restoreGame(ChessGame game) {
-            game.board.restoreFromHash(this.boardHash);
-            game.toMove = this.toMove;
-            game.castleRights = this.castleRights;
-            game.enPassantTarget = this.enPassantTarget;
-            game.fiftyMoveRule = this.fiftyMoveRule;
-        }
-
-        /**
-         * @param game the game to compare to
-         * @return if the game is in the same position as this memo
-         */
-        boolean isSamePosition(ChessGame game) {
-            return this.boardHash.equals(game.board.toHash())
-                    && this.toMove == game.toMove
-                    && this.castleRights.equals(game.castleRights)
-                    && this.enPassantTarget == game.enPassantTarget;
-        }
-
-        boolean isSamePosition(GameMemo memo) {
-            return this.boardHash.equals(memo.boardHash)
-                    && this.toMove == memo.toMove
-                    && this.castleRights.equals(memo.castleRights)
-                    && this.enPassantTarget == memo.enPassantTarget;
-        }
+        return this.history.size();
     }
 }
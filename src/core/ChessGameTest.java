@@ -1,8 +1,14 @@
 package core;
 
+import core.bitboard.Attacks;
+import core.bitboard.Direction;
+import core.move.GameStatus;
 import core.move.Move;
+import core.move.PackedMove;
 import core.square.Square;
 
+import java.util.ArrayList;
+
 import static core.square.File.*;
 import static core.square.Rank.*;
 
@@ -198,7 +204,302 @@ class ChessGameTest {
         System.out.println(board.toHash());
 
         assert (hash.equals(board.toHash()));
+
+        // restored pieces are the shared instances
+        for (var piece : board.getPieces()) {
+            assert piece.piece() == Piece.of(piece.type(), piece.color());
+        }
+    }
+
+    @org.junit.jupiter.api.Test
+    void testPositionKey() {
+        var e3 = new Move(new Square(E, _2), new Square(E, _3));
+        var d3 = new Move(new Square(D, _2), new Square(D, _3));
+        var e6 = new Move(new Square(E, _7), new Square(E, _6));
+
+        // transpositions reach the same key
+        var a = new ChessGame();
+        a.move(e3);
+        a.move(e6);
+        a.move(d3);
+        var b = new ChessGame();
+        b.move(d3);
+        b.move(e6);
+        b.move(e3);
+        assert a.positionKey() == b.positionKey();
+
+        // undo restores the key
+        var start = new ChessGame().positionKey();
+        b.undo(3);
+        assert b.positionKey() == start;
+
+        // threefold repetition
+        var Nf3 = new Move(new Square(G, _1), new Square(F, _3));
+        var Nf6 = new Move(new Square(G, _8), new Square(F, _6));
+        var Ng1 = new Move(new Square(F, _3), new Square(G, _1));
+        var Ng8 = new Move(new Square(F, _6), new Square(G, _8));
+        var game = new ChessGame();
+        Move[] moves = {Nf3, Nf6, Ng1, Ng8, Nf3, Nf6, Ng1};
+        for (Move move : moves) {
+            assert game.move(move).status() == GameStatus.InProgress;
+        }
+        assert game.move(Ng8).status() == GameStatus.Draw;
+        assert game.positionKey() == start;
     }
 
+    @org.junit.jupiter.api.Test
+    void testMakeUnmake() {
+        // 1. e4 d5 2. e5 f5 (en passant available, castling paths open up)
+        Move[] moves = {
+                new Move(new Square(E, _2), new Square(E, _4)),
+                new Move(new Square(D, _7), new Square(D, _5)),
+                new Move(new Square(E, _4), new Square(E, _5)),
+                new Move(new Square(F, _7), new Square(F, _5)),
+        };
+        var game = new ChessGame();
+        for (Move move : moves) {
+            game.move(move);
+        }
+
+        var position = game.position();
+        var hash = position.board().toHash();
+        var key = position.key();
+        for (var piece : position.board().getPieces()) {
+            for (var target : game.getLegalMoves(piece.square())) {
+                var move = new Move(piece.square(), target);
+                var undo = position.makeMove(move);
+                assert position.key() != key;
+                position.unmakeMove(move, undo);
 
-}
\ No newline at end of file
+                assert position.board().toHash().equals(hash);
+                assert position.key() == key;
+            }
+        }
+
+        var fen = position.toFen();
+        var undo = position.makeNullMove();
+        assert position.toMove() == Color.Black && position.enPassantTarget() == null;
+        assert position.key() == Position.fromFen(position.toFen()).key();
+        position.unmakeNullMove(undo);
+        assert position.toFen().equals(fen) && position.key() == key;
+    }
+
+    @org.junit.jupiter.api.Test
+    void testGenerateLegalMoves() {
+        var game = new ChessGame();
+        var buffer = new int[MoveGenerator.MAX_MOVES];
+        assert game.generateLegalMoves(buffer) == 20;
+        assert game.hasAnyLegalMove();
+
+        // fool's mate
+        game.move(new Move(new Square(F, _2), new Square(F, _3)));
+        game.move(new Move(new Square(E, _7), new Square(E, _5)));
+        game.move(new Move(new Square(G, _2), new Square(G, _4)));
+        var mate = game.move(new Move(new Square(D, _8), new Square(H, _4)));
+
+        assert mate.status() == GameStatus.BlackWins;
+        assert game.generateLegalMoves(buffer) == 0;
+        assert !game.hasAnyLegalMove();
+    }
+
+    @org.junit.jupiter.api.Test
+    void testCastleWithoutRook() {
+        // the FEN grants O-O, but there is no rook on h1
+        var game = ChessGame.fromFen("4k3/8/8/8/8/8/8/4K3 w K - 0 1");
+        var castle = new Move(new Square(E, _1), new Square(G, _1));
+        assert !game.isLegalMove(castle);
+        assert !game.getLegalMoves(new Square(E, _1)).contains(new Square(G, _1));
+        assert game.generateLegalMoves(new int[MoveGenerator.MAX_MOVES]) == 5;
+    }
+
+    @org.junit.jupiter.api.Test
+    void testPackedMove() {
+        var game = new ChessGame();
+        var buffer = new int[MoveGenerator.MAX_MOVES];
+        for (int ply = 0; ply < 40; ply++) {
+            int count = game.generateLegalMoves(buffer);
+            var position = game.position();
+            for (int i = 0; i < count; i++) {
+                int move = buffer[i];
+                assert PackedMove.fromShort(PackedMove.toShort(move)) == move;
+                assert position.pack(PackedMove.toMove(move)) == move;
+            }
+
+            // pick moves deterministically to reach captures, castles...
+            int move = buffer[(ply * 7) % count];
+            var qualified = game.move(move);
+            assert PackedMove.of(qualified) == move;
+        }
+
+        assert PackedMove.toString(PackedMove.of(12, 28)).equals("e2e4");
+        assert PackedMove.toString(PackedMove.of(52, 60, PieceType.Knight)).equals("e7e8n");
+    }
+
+    @org.junit.jupiter.api.Test
+    void testInvalidPromotion() {
+        var fen = "4k3/P7/8/8/8/8/8/4K3 w - - 0 1";
+        var game = ChessGame.fromFen(fen);
+        var a7 = new Square(A, _7);
+        var a8 = new Square(A, _8);
+        for (var type : new PieceType[]{PieceType.Pawn, PieceType.King}) {
+            var move = new Move(a7, a8, type);
+            assert !game.isLegalMove(move);
+            try {
+                game.move(move);
+                assert false;
+            } catch (IllegalArgumentException e) {
+                // the position is left untouched
+                assert game.position().toFen().equals(fen);
+            }
+            try {
+                PackedMove.of(a7.index(), a8.index(), type);
+                assert false;
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+        assert game.isLegalMove(new Move(a7, a8, PieceType.Rook));
+    }
+
+    @org.junit.jupiter.api.Test
+    void testInvalidFen() {
+        String[] invalid = {
+                // en passant square on the wrong rank, or with no pawn to take
+                "4k3/8/8/3pP3/8/8/8/4K3 w - d3 0 1",
+                "4k3/8/8/4P3/8/8/8/4K3 w - d6 0 1",
+                "4k3/8/8/8/3Pp3/8/8/4K3 b - d6 0 1",
+                // the undo record holds 16 bits of halfmove clock
+                "4k3/8/8/8/8/8/8/R3K3 w - - 70000 1",
+                "4k3/8/8/8/8/8/8/R3K3 w - - -1 1",
+        };
+        for (var fen : invalid) {
+            try {
+                Position.fromFen(fen);
+                assert false : fen;
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+
+        assert Position.fromFen("4k3/8/8/3pP3/8/8/8/4K3 w - d6 0 1").toFen().contains(" d6 ");
+        assert Position.fromFen("4k3/8/8/8/3Pp3/8/8/4K3 b - d3 0 1").toFen().contains(" d3 ");
+        var position = Position.fromFen("4k3/8/8/8/8/8/8/R3K3 w - - 65535 1");
+        assert position.halfmoveClock() == 65535;
+
+        // the clock stops at the limit, and unmaking restores the rook
+        long undo = position.makeMove(PackedMove.of(0, 1));
+        assert position.halfmoveClock() == 65535;
+        position.unmakeMove(PackedMove.of(0, 1), undo);
+        assert position.toFen().equals("4k3/8/8/8/8/8/8/R3K3 w - - 65535 1");
+    }
+
+    @org.junit.jupiter.api.Test
+    void testSquareTable() {
+        for (int index = 0; index < 64; index++) {
+            var square = Square.of(index);
+            assert square.index() == index;
+            assert square == Square.of(square.file(), square.rank());
+            assert square.equals(new Square(square.file(), square.rank()));
+        }
+        assert Square.of(E, _2).add(0, 2).orElseThrow() == Square.of(E, _4);
+        assert Square.of(H, _1).add(1, 0).isEmpty();
+
+        // a1 to h8 diagonal, without a1
+        assert Attacks.ray(Direction.NorthEast, 0) == 0x8040201008040200L;
+        assert Attacks.ray(Direction.West, Square.of(D, _1).index()) == 0x7L;
+    }
+
+    @org.junit.jupiter.api.Test
+    void testDisambiguation() {
+        // knights on b1 and f1 both reach d2
+        var game = ChessGame.fromFen("4k3/8/8/8/8/8/8/1N2KN2 w - - 0 1");
+        var move = game.move(new Move(new Square(B, _1), new Square(D, _2)));
+        assert move.disambiguateFile() && !move.disambiguateRank();
+
+        // rooks on a1 and a5 both reach a3
+        game = ChessGame.fromFen("4k3/8/8/R7/8/8/8/R3K3 w - - 0 1");
+        move = game.move(new Move(new Square(A, _1), new Square(A, _3)));
+        assert !move.disambiguateFile() && move.disambiguateRank();
+
+        // the f1 knight is pinned by the h1 rook: no ambiguity
+        game = ChessGame.fromFen("4k3/8/8/8/8/8/8/1N2KN1r w - - 0 1");
+        move = game.move(new Move(new Square(B, _1), new Square(D, _2)));
+        assert !move.disambiguateFile() && !move.disambiguateRank();
+    }
+
+    @org.junit.jupiter.api.Test
+    void testStatus() {
+        // king takes the last knight: king against king
+        var game = ChessGame.fromFen("4k3/8/8/8/8/8/3n4/4K3 w - - 0 1");
+        var move = game.move(new Move(new Square(E, _1), new Square(D, _2)));
+        assert move.status() == GameStatus.InsufficientMaterial;
+
+        // king and bishop against king and knight
+        assert ChessGame.fromFen("4k3/8/3n4/8/8/8/8/2B1K3 w - - 0 1").status()
+                == GameStatus.InsufficientMaterial;
+        // a pawn can still promote
+        assert ChessGame.fromFen("4k3/8/8/8/8/8/3P4/4K3 w - - 0 1").status()
+                == GameStatus.InProgress;
+
+        assert ChessGame.fromFen("7k/5Q2/6K1/8/8/8/8/8 b - - 0 1").status()
+                == GameStatus.Stalemate;
+        assert ChessGame.fromFen("7k/8/8/8/8/8/8/K6R b - - 0 1").status()
+                == GameStatus.Check;
+    }
+
+    @org.junit.jupiter.api.Test
+    void testHistory() {
+        var game = new ChessGame();
+        var buffer = new int[MoveGenerator.MAX_MOVES];
+        var hashes = new ArrayList<String>();
+        var keys = new ArrayList<Long>();
+        hashes.add(game.board().toHash());
+        keys.add(game.positionKey());
+
+        // long enough to span several keyframes
+        for (int ply = 0; ply < 100; ply++) {
+            int count = game.generateLegalMoves(buffer);
+            if (count == 0) break;
+            game.move(buffer[(ply * 13) % count]);
+            hashes.add(game.board().toHash());
+            keys.add(game.positionKey());
+        }
+
+        int plies = game.moveCount();
+        assert plies == hashes.size() - 1;
+        for (int i = 0; i <= plies; i++) {
+            assert game.peekBoard(i).toHash().equals(hashes.get(i));
+        }
+        assert game.peekMove(0) == null;
+        assert game.peekMove(plies) != null;
+
+        game.undo(5);
+        assert game.moveCount() == plies - 5;
+        assert game.board().toHash().equals(hashes.get(plies - 5));
+        assert game.positionKey() == keys.get(plies - 5);
+
+        // undo to white's 10th move: 18 plies kept, the position after
+        // black's 9th
+        var last = game.undo(10, Color.White);
+        assert game.moveCount() == 18;
+        assert last.orElseThrow() == game.peekMove(18);
+        assert game.board().toHash().equals(hashes.get(18));
+        assert game.positionKey() == keys.get(18);
+    }
+
+    @org.junit.jupiter.api.Test
+    void testLegalMoveCache() {
+        var game = new ChessGame();
+        var e4 = new Move(new Square(E, _2), new Square(E, _4));
+        var e5 = new Move(new Square(E, _7), new Square(E, _5));
+        assert game.isLegalMove(e4) && !game.isLegalMove(e5);
+
+        game.move(e4);
+        assert !game.isLegalMove(e4) && game.isLegalMove(e5);
+        assert game.getLegalMoves(new Square(E, _7)).size() == 2;
+
+        game.undo();
+        assert game.isLegalMove(e4) && !game.isLegalMove(e5);
+        assert game.getLegalMoves(new Square(E, _7)).isEmpty();
+    }
+}
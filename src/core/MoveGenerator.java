@@ -0,0 +1,282 @@
+package core;
+
+import core.bitboard.Attacks;
+import core.bitboard.Bitboards;
+import core.move.PackedMove;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Legal move generator.
+ * <p>
+ * {@link #refresh()} computes, once per position, the pieces giving check
+ * and the pieces pinned to the king of the side to move. Targets are then
+ * restricted up front instead of simulating every move:
+ * <ul>
+ *     <li>in double check only the king may move;</li>
+ *     <li>in single check other pieces may only capture the checker or
+ *     block between it and the king;</li>
+ *     <li>a pinned piece may only move along the line through the king
+ *     and its pinner;</li>
+ *     <li>the king may only step onto squares not attacked once it has
+ *     left its square (so it can't retreat along a checking ray).</li>
+ * </ul>
+ * En passant is the one move verified explicitly, since it removes two
+ * pieces from a line at once (e.g. both pawns sitting between the king
+ * and a rook on the fifth rank).
+ */
+public final class MoveGenerator {
+    /**
+     * An upper bound on the number of legal moves in any position (the
+     * known maximum is 218)
+     */
+    public static final int MAX_MOVES = 256;
+
+    private final Position position;
+
+    private Color us;
+    private int king;
+    private long checkers;
+    private long checkMask;
+    private long pinned;
+
+    /**
+     * @param position the position to generate moves for; call
+     *                 {@link #refresh()} whenever it changes
+     */
+    public MoveGenerator(@NotNull Position position) {
+        this.position = position;
+        refresh();
+    }
+
+    /**
+     * Recompute the checkers and pinned pieces of the current position
+     */
+    public void refresh() {
+        var board = this.position.board();
+        this.us = this.position.toMove();
+        var them = this.us.opposite();
+        this.king = board.kingSquare(this.us);
+
+        long occupied = board.occupied();
+        this.checkers = board.attackersTo(this.king, them, occupied);
+
+        if (this.checkers == 0) {
+            this.checkMask = Bitboards.ALL;
+        } else if ((this.checkers & (this.checkers - 1)) == 0) {
+            int checker = Bitboards.first(this.checkers);
+            this.checkMask = this.checkers | Attacks.between(this.king, checker);
+        } else {
+            this.checkMask = Bitboards.EMPTY;
+        }
+
+        // sliders that would see the king through our own pieces
+        long theirs = board.pieces(them);
+        long queens = board.pieces(PieceType.Queen, them);
+        long snipers = (Attacks.rook(this.king, theirs)
+                & (board.pieces(PieceType.Rook, them) | queens))
+                | (Attacks.bishop(this.king, theirs)
+                & (board.pieces(PieceType.Bishop, them) | queens));
+
+        this.pinned = 0L;
+        long ours = board.pieces(this.us);
+        for (; snipers != 0; snipers &= snipers - 1) {
+            long blockers = Attacks.between(this.king, Bitboards.first(snipers)) & occupied;
+            if (blockers != 0 && (blockers & (blockers - 1)) == 0 && (blockers & ours) != 0)
+                this.pinned |= blockers;
+        }
+    }
+
+    /**
+     * @return the pieces giving check to the side to move
+     */
+    public long checkers() {
+        return this.checkers;
+    }
+
+    /**
+     * @return the pieces of the side to move pinned to their king
+     */
+    public long pinned() {
+        return this.pinned;
+    }
+
+    /**
+     * Write every legal move of the position into a buffer.
+     *
+     * @param buffer the buffer to fill with {@link PackedMove packed moves},
+     *               of at least {@link #MAX_MOVES} length
+     * @return the number of moves written
+     */
+    public int generate(int[] buffer) {
+        var board = this.position.board();
+        int count = 0;
+        for (long pieces = board.pieces(this.us); pieces != 0; pieces &= pieces - 1) {
+            int from = Bitboards.first(pieces);
+            long targets = targets(from);
+            if (targets == 0) continue;
+
+            var type = board.pieceAt(from).type();
+            for (; targets != 0; targets &= targets - 1) {
+                int to = Bitboards.first(targets);
+                int rank = to >>> 3;
+                if (type == PieceType.Pawn && (rank == 0 || rank == 7)) {
+                    buffer[count++] = PackedMove.of(from, to, PieceType.Queen);
+                    buffer[count++] = PackedMove.of(from, to, PieceType.Rook);
+                    buffer[count++] = PackedMove.of(from, to, PieceType.Bishop);
+                    buffer[count++] = PackedMove.of(from, to, PieceType.Knight);
+                } else if (type == PieceType.Pawn && ((from ^ to) & 7) != 0
+                        && board.pieceAt(to) == null) {
+                    buffer[count++] = PackedMove.enPassant(from, to);
+                } else if (type == PieceType.King && Math.abs(to - from) == 2) {
+                    buffer[count++] = PackedMove.castle(from, to);
+                } else {
+                    buffer[count++] = PackedMove.of(from, to);
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return if the side to move has at least one legal move; stops at the
+     * first piece that can move
+     */
+    public boolean hasAnyLegalMove() {
+        if (kingTargets() != 0) return true;
+        if (this.checkMask == 0) return false;
+
+        long others = this.position.board().pieces(this.us) & ~Bitboards.bit(this.king);
+        for (; others != 0; others &= others - 1) {
+            if (targets(Bitboards.first(others)) != 0) return true;
+        }
+        return false;
+    }
+
+    /**
+     * @param from the square of a piece of the side to move
+     * @return the set of squares the piece can legally move to (empty if the
+     * square is empty or holds an enemy piece)
+     */
+    public long targets(int from) {
+        var board = this.position.board();
+        var piece = board.pieceAt(from);
+        if (piece == null || piece.color() != this.us) return Bitboards.EMPTY;
+
+        if (piece.type() == PieceType.King) return kingTargets();
+
+        // in double check only the king can move
+        if (this.checkMask == 0) return Bitboards.EMPTY;
+
+        long occupied = board.occupied();
+        long targets = switch (piece.type()) {
+            case Pawn -> pawnPushes(from, occupied)
+                    | (Attacks.pawn(this.us, from) & board.pieces(this.us.opposite()));
+            case Knight -> Attacks.knight(from);
+            case Bishop -> Attacks.bishop(from, occupied);
+            case Rook -> Attacks.rook(from, occupied);
+            case Queen -> Attacks.queen(from, occupied);
+            case King -> throw new IllegalStateException();
+        };
+
+        targets &= ~board.pieces(this.us) & this.checkMask;
+        if ((this.pinned & Bitboards.bit(from)) != 0)
+            targets &= Attacks.line(this.king, from);
+
+        if (piece.type() == PieceType.Pawn)
+            targets |= enPassantTarget(from);
+
+        return targets;
+    }
+
+    private long pawnPushes(int from, long occupied) {
+        int forward = this.us == Color.White ? 8 : -8;
+        int rank = from >>> 3;
+        long pushes = 0L;
+
+        int single = from + forward;
+        if (!Bitboards.contains(occupied, single)) {
+            pushes |= Bitboards.bit(single);
+
+            boolean onStartRank = this.us == Color.White ? rank == 1 : rank == 6;
+            if (onStartRank && !Bitboards.contains(occupied, single + forward))
+                pushes |= Bitboards.bit(single + forward);
+        }
+        return pushes;
+    }
+
+    /**
+     * @return the en passant target square of the pawn as a set, if the
+     * capture is legal
+     */
+    private long enPassantTarget(int from) {
+        var file = this.position.enPassantTarget();
+        if (file == null) return Bitboards.EMPTY;
+
+        int rank = from >>> 3;
+        int captureRank = this.us == Color.White ? 4 : 3;
+        if (rank != captureRank || Math.abs((from & 7) - file.ordinal()) != 1)
+            return Bitboards.EMPTY;
+
+        int victim = captureRank * 8 + file.ordinal();
+        int target = victim + (this.us == Color.White ? 8 : -8);
+
+        // look at the king's attackers on the board after the capture
+        var board = this.position.board();
+        long occupied = (board.occupied() ^ Bitboards.bit(from) ^ Bitboards.bit(victim))
+                | Bitboards.bit(target);
+        long attackers = board.attackersTo(this.king, this.us.opposite(), occupied)
+                & ~Bitboards.bit(victim);
+
+        return attackers == 0 ? Bitboards.bit(target) : Bitboards.EMPTY;
+    }
+
+    private long kingTargets() {
+        var board = this.position.board();
+        var them = this.us.opposite();
+
+        // the king doesn't block rays aimed at itself
+        long occupied = board.occupied() ^ Bitboards.bit(this.king);
+        long targets = 0L;
+        for (long set = Attacks.king(this.king) & ~board.pieces(this.us); set != 0; set &= set - 1) {
+            int target = Bitboards.first(set);
+            if (board.attackersTo(target, them, occupied) == 0)
+                targets |= Bitboards.bit(target);
+        }
+
+        if (this.checkers == 0)
+            targets |= castleTargets();
+
+        return targets;
+    }
+
+    private long castleTargets() {
+        var board = this.position.board();
+        var them = this.us.opposite();
+        int rights = this.position.castleBits();
+        int home = this.us == Color.White ? 4 : 60;
+        if (this.king != home) return Bitboards.EMPTY;
+
+        boolean kingside = (rights & (this.us == Color.White
+                ? CastleRights.WHITE_KINGSIDE : CastleRights.BLACK_KINGSIDE)) != 0;
+        boolean queenside = (rights & (this.us == Color.White
+                ? CastleRights.WHITE_QUEENSIDE : CastleRights.BLACK_QUEENSIDE)) != 0;
+        long occupied = board.occupied();
+        long rooks = board.pieces(PieceType.Rook, this.us);
+        long targets = 0L;
+
+        // a FEN may grant a right whose rook is gone
+        if (kingside && Bitboards.contains(rooks, home + 3)
+                && (occupied & (Bitboards.bit(home + 1) | Bitboards.bit(home + 2))) == 0
+                && !board.isSquareAttacked(home + 1, them)
+                && !board.isSquareAttacked(home + 2, them)) {
+            targets |= Bitboards.bit(home + 2);
+        }
+        if (queenside && Bitboards.contains(rooks, home - 4)
+                && (occupied & (Bitboards.bit(home - 1) | Bitboards.bit(home - 2) | Bitboards.bit(home - 3))) == 0
+                && !board.isSquareAttacked(home - 1, them)
+                && !board.isSquareAttacked(home - 2, them)) {
+            targets |= Bitboards.bit(home - 2);
+        }
+        return targets;
+    }
+}
@@ -0,0 +1,128 @@
+package core;
+
+import core.move.QualifiedMove;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * The moves of a game as a compact delta log.
+ * <p>
+ * Each ply keeps its {@link core.move.PackedMove packed move}, the undo
+ * record returned by {@link Position#makeMove(int)} (captured piece and the
+ * previous castle rights, en passant file and halfmove clock) and the key
+ * of the position it led to. Undoing a ply is an
+ * {@link Position#unmakeMove(int, long)}; no board is stored per ply.
+ * <p>
+ * To look at a past position without unmaking the game, a copy of the
+ * position is kept every {@value #KEYFRAME_INTERVAL} plies, and the
+ * position is replayed from the nearest one.
+ */
+final class MoveLog {
+    static final int KEYFRAME_INTERVAL = 32;
+
+    private int[] moves;
+    private long[] undos;
+    private long[] keys;
+    private final ArrayList<QualifiedMove> qualifiedMoves;
+    private final ArrayList<Position> keyframes;
+    private int size;
+
+    /**
+     * @param start the starting position (copied)
+     */
+    MoveLog(@NotNull Position start) {
+        this.moves = new int[64];
+        this.undos = new long[64];
+        this.keys = new long[64];
+        this.qualifiedMoves = new ArrayList<>();
+        this.keyframes = new ArrayList<>();
+        this.keyframes.add(start.copy());
+        this.size = 0;
+    }
+
+    /**
+     * @return the number of plies played
+     */
+    int size() {
+        return this.size;
+    }
+
+    /**
+     * Record a ply that was just made.
+     *
+     * @param move      the packed move
+     * @param undo      its undo record
+     * @param position  the position after the move
+     * @param qualified the move as reported to the caller
+     */
+    void push(int move, long undo, @NotNull Position position, @NotNull QualifiedMove qualified) {
+        if (this.size == this.moves.length) {
+            int capacity = this.size * 2;
+            this.moves = Arrays.copyOf(this.moves, capacity);
+            this.undos = Arrays.copyOf(this.undos, capacity);
+            this.keys = Arrays.copyOf(this.keys, capacity);
+        }
+        this.moves[this.size] = move;
+        this.undos[this.size] = undo;
+        this.keys[this.size] = position.key();
+        this.qualifiedMoves.add(qualified);
+        this.size++;
+
+        if (this.size % KEYFRAME_INTERVAL == 0)
+            this.keyframes.add(position.copy());
+    }
+
+    /**
+     * Unmake the last ply on the game position and forget it.
+     *
+     * @param position the position of the game, after the last ply
+     * @return the key of the position before the ply was undone
+     */
+    long pop(@NotNull Position position) {
+        assert this.size > 0;
+        if (this.size % KEYFRAME_INTERVAL == 0)
+            this.keyframes.remove(this.keyframes.size() - 1);
+
+        this.size--;
+        position.unmakeMove(this.moves[this.size], this.undos[this.size]);
+        this.qualifiedMoves.remove(this.size);
+        return this.keys[this.size];
+    }
+
+    /**
+     * @return the keys of the starting position and of the positions
+     * reached by each ply, oldest first
+     */
+    long[] keys() {
+        var keys = new long[this.size + 1];
+        keys[0] = this.keyframes.get(0).key();
+        System.arraycopy(this.keys, 0, keys, 1, this.size);
+        return keys;
+    }
+
+    /**
+     * @param ply the number of plies played (0 is the starting position)
+     * @return the move that led to that position, or null for the start
+     */
+    QualifiedMove qualifiedMove(int ply) {
+        return ply == 0 ? null : this.qualifiedMoves.get(ply - 1);
+    }
+
+    /**
+     * @param ply the number of plies played (0 is the starting position)
+     * @return a copy of the position after that many plies
+     */
+    @NotNull Position positionAt(int ply) {
+        if (ply < 0 || ply > this.size)
+            throw new IndexOutOfBoundsException("Ply " + ply + " out of 0.." + this.size);
+
+        int keyframe = ply / KEYFRAME_INTERVAL;
+        var position = this.keyframes.get(keyframe).copy();
+        for (int i = keyframe * KEYFRAME_INTERVAL; i < ply; i++) {
+            position.makeMove(this.moves[i]);
+        }
+        return position;
+    }
+}
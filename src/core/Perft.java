@@ -0,0 +1,251 @@
+package core;
+
+import core.move.PackedMove;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.Serial;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Performance test: counts the leaf nodes of the legal move tree to a
+ * fixed depth. The counts of well known positions are published, so a
+ * mismatch points at a move generation (or make/unmake) bug, and the time
+ * taken measures the speed of both.
+ * <p>
+ * Runs on its own copy of the position with one move buffer per ply, so
+ * the search itself allocates nothing. {@link #parallelCount} splits the
+ * tree into fork/join tasks instead, each on its own position copy; the
+ * count is the same as the sequential one.
+ */
+public final class Perft {
+    /**
+     * Subtrees at most this deep are counted sequentially by one task
+     */
+    private static final int SEQUENTIAL_DEPTH = 3;
+
+    private final Position position;
+    private final MoveGenerator generator;
+    private int[][] moves;
+
+    /**
+     * @param game the game whose current position to count from (the game
+     *             itself is not modified)
+     */
+    public Perft(@NotNull ChessGame game) {
+        this(game.position());
+    }
+
+    Perft(@NotNull Position position) {
+        this.position = position;
+        this.generator = new MoveGenerator(position);
+        this.moves = new int[0][];
+    }
+
+    /**
+     * @param depth the depth in plies (0 counts the position itself)
+     * @return the number of leaf nodes at that depth
+     */
+    public long count(int depth) {
+        if (depth < 0) throw new IllegalArgumentException("Negative depth");
+        ensureBuffers(depth);
+        return count(depth, 0);
+    }
+
+    /**
+     * @param depth the depth in plies, at least 1
+     * @return the leaf count below each root move, keyed by the move in
+     * coordinate notation (e.g. e2e4), in generation order
+     */
+    public @NotNull LinkedHashMap<String, Long> divide(int depth) {
+        if (depth < 1) throw new IllegalArgumentException("Depth must be at least 1");
+        ensureBuffers(depth);
+
+        var buffer = this.moves[0];
+        this.generator.refresh();
+        int count = this.generator.generate(buffer);
+
+        var result = new LinkedHashMap<String, Long>();
+        for (int i = 0; i < count; i++) {
+            int move = buffer[i];
+            long undo = this.position.makeMove(move);
+            result.put(PackedMove.toString(move), count(depth - 1, 1));
+            this.position.unmakeMove(move, undo);
+        }
+        return result;
+    }
+
+    /**
+     * Count the leaf nodes and time the run.
+     *
+     * @param depth the depth in plies
+     * @return the node count and elapsed time
+     */
+    public @NotNull Result run(int depth) {
+        long start = System.nanoTime();
+        long nodes = count(depth);
+        return new Result(depth, nodes, System.nanoTime() - start);
+    }
+
+    /**
+     * Count the leaf nodes in parallel on the common fork/join pool.
+     *
+     * @see #parallelCount(int, ForkJoinPool)
+     */
+    public long parallelCount(int depth) {
+        return parallelCount(depth, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Count the leaf nodes in parallel. The tree is split into one task per
+     * move until the remaining depth is {@value #SEQUENTIAL_DEPTH} plies,
+     * so a wide root doesn't leave threads idle and a narrow one (e.g. in
+     * check) still spreads below it.
+     *
+     * @param depth the depth in plies
+     * @param pool  the pool to run the tasks on
+     * @return the number of leaf nodes at that depth
+     */
+    public long parallelCount(int depth, @NotNull ForkJoinPool pool) {
+        if (depth < 0) throw new IllegalArgumentException("Negative depth");
+        return pool.invoke(new Task(this.position.copy(), depth));
+    }
+
+    /**
+     * Count the leaf nodes in parallel and time the run.
+     *
+     * @see #parallelCount(int, ForkJoinPool)
+     */
+    public @NotNull Result runParallel(int depth, @NotNull ForkJoinPool pool) {
+        long start = System.nanoTime();
+        long nodes = parallelCount(depth, pool);
+        return new Result(depth, nodes, System.nanoTime() - start);
+    }
+
+    private long count(int depth, int ply) {
+        if (depth == 0) return 1;
+
+        var buffer = this.moves[ply];
+        this.generator.refresh();
+        int count = this.generator.generate(buffer);
+
+        // the moves are legal: no need to make the last ply
+        if (depth == 1) return count;
+
+        long nodes = 0;
+        for (int i = 0; i < count; i++) {
+            int move = buffer[i];
+            long undo = this.position.makeMove(move);
+            nodes += count(depth - 1, ply + 1);
+            this.position.unmakeMove(move, undo);
+        }
+        return nodes;
+    }
+
+    private void ensureBuffers(int depth) {
+        if (this.moves.length >= depth) return;
+        this.moves = new int[depth][MoveGenerator.MAX_MOVES];
+    }
+
+    private static final class Task extends RecursiveTask<Long> {
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        // tasks only live in a pool, they are never serialized
+        private final transient Position position;
+        private final int depth;
+
+        /**
+         * @param position a position owned by the task
+         */
+        Task(Position position, int depth) {
+            this.position = position;
+            this.depth = depth;
+        }
+
+        @Override
+        protected Long compute() {
+            if (this.depth <= SEQUENTIAL_DEPTH)
+                return new Perft(this.position).count(this.depth);
+
+            var buffer = new int[MoveGenerator.MAX_MOVES];
+            int count = new MoveGenerator(this.position).generate(buffer);
+
+            var tasks = new ArrayList<Task>(count);
+            for (int i = 0; i < count; i++) {
+                var child = this.position.copy();
+                child.makeMove(buffer[i]);
+                tasks.add(new Task(child, this.depth - 1));
+            }
+
+            long nodes = 0;
+            for (var task : invokeAll(tasks)) {
+                nodes += task.join();
+            }
+            return nodes;
+        }
+    }
+
+    /**
+     * @param depth the depth of the run
+     * @param nodes the number of leaf nodes
+     * @param nanos the elapsed time in nanoseconds
+     */
+    public record Result(int depth, long nodes, long nanos) {
+        /**
+         * @return the number of leaf nodes per second
+         */
+        public double nps() {
+            return this.nanos == 0 ? 0 : this.nodes * 1e9 / this.nanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("depth %d: %d nodes in %.3f s (%.0f nps)",
+                    this.depth, this.nodes, this.nanos / 1e9, nps());
+        }
+    }
+
+    /**
+     * Usage: {@code Perft <depth> [fen] [--divide | --parallel[=threads]]}
+     */
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.err.println("Usage: Perft <depth> [fen] [--divide | --parallel[=threads]]");
+            System.exit(2);
+        }
+
+        int depth = Integer.parseInt(args[0]);
+        boolean divide = false;
+        int threads = 0;
+        var fen = new StringBuilder();
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].equals("--divide")) divide = true;
+            else if (args[i].equals("--parallel")) threads = Runtime.getRuntime().availableProcessors();
+            else if (args[i].startsWith("--parallel=")) threads = Integer.parseInt(args[i].substring(11));
+            else fen.append(args[i]).append(' ');
+        }
+
+        var game = fen.isEmpty() ? new ChessGame() : ChessGame.fromFen(fen.toString());
+        var perft = new Perft(game);
+        if (divide) {
+            long total = 0;
+            for (var entry : perft.divide(depth).entrySet()) {
+                System.out.println(entry.getKey() + ": " + entry.getValue());
+                total += entry.getValue();
+            }
+            System.out.println();
+            System.out.println("Nodes searched: " + total);
+        } else if (threads > 0) {
+            try (var pool = new ForkJoinPool(threads)) {
+                System.out.println(perft.runParallel(depth, pool) + " on " + threads + " threads");
+            }
+        } else {
+            for (int d = 1; d <= depth; d++) {
+                System.out.println(perft.run(d));
+            }
+        }
+    }
+}
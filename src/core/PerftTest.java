@@ -0,0 +1,93 @@
+package core;
+
+/**
+ * Node counts of the reference positions from
+ * https://www.chessprogramming.org/Perft_Results
+ */
+class PerftTest {
+    private static final String INITIAL =
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+    // castling, pins, en passant and promotions in the middlegame
+    private static final String KIWIPETE =
+            "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+    // en passant discovered checks along the fifth rank
+    private static final String POSITION_3 =
+            "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1";
+    // promotions with capture, castling rights lost to captures
+    private static final String POSITION_4 =
+            "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1";
+    private static final String POSITION_5 =
+            "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8";
+    private static final String POSITION_6 =
+            "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10";
+
+    private static void assertCounts(String fen, long... expected) {
+        var perft = new Perft(ChessGame.fromFen(fen));
+        for (int depth = 1; depth <= expected.length; depth++) {
+            long nodes = perft.count(depth);
+            assert nodes == expected[depth - 1]
+                    : fen + " depth " + depth + ": " + nodes + " != " + expected[depth - 1];
+        }
+    }
+
+    @org.junit.jupiter.api.Test
+    void testInitial() {
+        assertCounts(INITIAL, 20, 400, 8902, 197281);
+    }
+
+    @org.junit.jupiter.api.Test
+    void testKiwipete() {
+        assertCounts(KIWIPETE, 48, 2039, 97862);
+    }
+
+    @org.junit.jupiter.api.Test
+    void testPosition3() {
+        assertCounts(POSITION_3, 14, 191, 2812, 43238);
+    }
+
+    @org.junit.jupiter.api.Test
+    void testPosition4() {
+        assertCounts(POSITION_4, 6, 264, 9467);
+    }
+
+    @org.junit.jupiter.api.Test
+    void testPosition5() {
+        assertCounts(POSITION_5, 44, 1486, 62379);
+    }
+
+    @org.junit.jupiter.api.Test
+    void testPosition6() {
+        assertCounts(POSITION_6, 46, 2079, 89890);
+    }
+
+    @org.junit.jupiter.api.Test
+    void testDivide() {
+        var perft = new Perft(ChessGame.fromFen(KIWIPETE));
+        var divide = perft.divide(3);
+        assert divide.size() == 48;
+        assert divide.values().stream().mapToLong(Long::longValue).sum() == 97862;
+        // the game is left untouched
+        assert perft.count(2) == 2039;
+    }
+
+    @org.junit.jupiter.api.Test
+    void testFen() {
+        for (var fen : new String[]{INITIAL, KIWIPETE, POSITION_3, POSITION_4}) {
+            assert Position.fromFen(fen).toFen().equals(fen);
+        }
+        assert Position.fromFen(INITIAL).key() == new ChessGame().positionKey();
+    }
+
+    @org.junit.jupiter.api.Test
+    void testParallel() {
+        try (var pool = new java.util.concurrent.ForkJoinPool(4)) {
+            for (var fen : new String[]{INITIAL, KIWIPETE, POSITION_3, POSITION_5}) {
+                var perft = new Perft(ChessGame.fromFen(fen));
+                for (int depth = 1; depth <= 4; depth++) {
+                    assert perft.parallelCount(depth, pool) == perft.count(depth)
+                            : fen + " depth " + depth;
+                }
+            }
+        }
+    }
+}
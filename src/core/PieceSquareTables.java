@@ -0,0 +1,145 @@
+package core;
+
+/**
+ * Piece-square tables for a tapered evaluation: the worth of each piece on
+ * each square, once for the midgame and once for the endgame, in
+ * centipawns with white ahead as positive. Each entry includes the piece's
+ * material ({@link Piece#value()}); the king's is left out, as both sides
+ * always have one.
+ * <p>
+ * The tables are those of the "simplified evaluation function", with
+ * endgame tables of their own for the pawn (advanced pawns are worth more)
+ * and the king (centralized rather than sheltered). {@link Board} keeps the
+ * sum of the entries of its pieces up to date, so evaluating is a blend of
+ * two numbers instead of a scan of the board.
+ * <p>
+ * The game phase is measured by the pieces left: {@value #MAX_PHASE} with
+ * all of them (counting a knight or bishop as 1, a rook as 2 and a queen as
+ * 4) down to 0 with kings and pawns only.
+ */
+final class PieceSquareTables {
+    static final int MAX_PHASE = 24;
+
+    // by PieceType ordinal
+    private static final int[] PHASE = {0, 1, 1, 2, 4, 0};
+
+    /*
+     * From white's side: the first row is the 8th rank, a8 to h8
+     */
+    private static final int[] PAWN_MIDGAME = {
+            0, 0, 0, 0, 0, 0, 0, 0,
+            50, 50, 50, 50, 50, 50, 50, 50,
+            10, 10, 20, 30, 30, 20, 10, 10,
+            5, 5, 10, 25, 25, 10, 5, 5,
+            0, 0, 0, 20, 20, 0, 0, 0,
+            5, -5, -10, 0, 0, -10, -5, 5,
+            5, 10, 10, -20, -20, 10, 10, 5,
+            0, 0, 0, 0, 0, 0, 0, 0
+    };
+    private static final int[] PAWN_ENDGAME = {
+            0, 0, 0, 0, 0, 0, 0, 0,
+            80, 80, 80, 80, 80, 80, 80, 80,
+            50, 50, 50, 50, 50, 50, 50, 50,
+            30, 30, 30, 30, 30, 30, 30, 30,
+            20, 20, 20, 20, 20, 20, 20, 20,
+            10, 10, 10, 10, 10, 10, 10, 10,
+            10, 10, 10, 10, 10, 10, 10, 10,
+            0, 0, 0, 0, 0, 0, 0, 0
+    };
+    private static final int[] KNIGHT = {
+            -50, -40, -30, -30, -30, -30, -40, -50,
+            -40, -20, 0, 0, 0, 0, -20, -40,
+            -30, 0, 10, 15, 15, 10, 0, -30,
+            -30, 5, 15, 20, 20, 15, 5, -30,
+            -30, 0, 15, 20, 20, 15, 0, -30,
+            -30, 5, 10, 15, 15, 10, 5, -30,
+            -40, -20, 0, 5, 5, 0, -20, -40,
+            -50, -40, -30, -30, -30, -30, -40, -50
+    };
+    private static final int[] BISHOP = {
+            -20, -10, -10, -10, -10, -10, -10, -20,
+            -10, 0, 0, 0, 0, 0, 0, -10,
+            -10, 0, 5, 10, 10, 5, 0, -10,
+            -10, 5, 5, 10, 10, 5, 5, -10,
+            -10, 0, 10, 10, 10, 10, 0, -10,
+            -10, 10, 10, 10, 10, 10, 10, -10,
+            -10, 5, 0, 0, 0, 0, 5, -10,
+            -20, -10, -10, -10, -10, -10, -10, -20
+    };
+    private static final int[] ROOK = {
+            0, 0, 0, 0, 0, 0, 0, 0,
+            5, 10, 10, 10, 10, 10, 10, 5,
+            -5, 0, 0, 0, 0, 0, 0, -5,
+            -5, 0, 0, 0, 0, 0, 0, -5,
+            -5, 0, 0, 0, 0, 0, 0, -5,
+            -5, 0, 0, 0, 0, 0, 0, -5,
+            -5, 0, 0, 0, 0, 0, 0, -5,
+            0, 0, 0, 5, 5, 0, 0, 0
+    };
+    private static final int[] QUEEN = {
+            -20, -10, -10, -5, -5, -10, -10, -20,
+            -10, 0, 0, 0, 0, 0, 0, -10,
+            -10, 0, 5, 5, 5, 5, 0, -10,
+            -5, 0, 5, 5, 5, 5, 0, -5,
+            0, 0, 5, 5, 5, 5, 0, -5,
+            -10, 5, 5, 5, 5, 5, 0, -10,
+            -10, 0, 5, 0, 0, 0, 0, -10,
+            -20, -10, -10, -5, -5, -10, -10, -20
+    };
+    private static final int[] KING_MIDGAME = {
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -30, -40, -40, -50, -50, -40, -40, -30,
+            -20, -30, -30, -40, -40, -30, -30, -20,
+            -10, -20, -20, -20, -20, -20, -20, -10,
+            20, 20, 0, 0, 0, 0, 20, 20,
+            20, 30, 10, 0, 0, 10, 30, 20
+    };
+    private static final int[] KING_ENDGAME = {
+            -50, -40, -30, -20, -20, -30, -40, -50,
+            -30, -20, -10, 0, 0, -10, -20, -30,
+            -30, -10, 20, 30, 30, 20, -10, -30,
+            -30, -10, 30, 40, 40, 30, -10, -30,
+            -30, -10, 30, 40, 40, 30, -10, -30,
+            -30, -10, 20, 30, 30, 20, -10, -30,
+            -30, -30, 0, 0, 0, 0, -30, -30,
+            -50, -30, -30, -30, -30, -30, -30, -50
+    };
+
+    // [piece index][square index]
+    private static final int[][] MIDGAME = new int[12][64];
+    private static final int[][] ENDGAME = new int[12][64];
+
+    static {
+        int[][] midgame = {PAWN_MIDGAME, KNIGHT, BISHOP, ROOK, QUEEN, KING_MIDGAME};
+        int[][] endgame = {PAWN_ENDGAME, KNIGHT, BISHOP, ROOK, QUEEN, KING_ENDGAME};
+        for (var type : PieceType.values()) {
+            int material = type == PieceType.King ? 0 : Piece.of(type, Color.White).value() * 100;
+            for (int sq = 0; sq < 64; sq++) {
+                // the tables are drawn rank 8 first; black's mirror white's
+                int white = sq ^ 56;
+                int black = sq;
+                MIDGAME[Piece.of(type, Color.White).index()][sq] = material + midgame[type.ordinal()][white];
+                ENDGAME[Piece.of(type, Color.White).index()][sq] = material + endgame[type.ordinal()][white];
+                MIDGAME[Piece.of(type, Color.Black).index()][sq] = -material - midgame[type.ordinal()][black];
+                ENDGAME[Piece.of(type, Color.Black).index()][sq] = -material - endgame[type.ordinal()][black];
+            }
+        }
+    }
+
+    private PieceSquareTables() {
+    }
+
+    static int midgame(Piece piece, int square) {
+        return MIDGAME[piece.index()][square];
+    }
+
+    static int endgame(Piece piece, int square) {
+        return ENDGAME[piece.index()][square];
+    }
+
+    static int phase(Piece piece) {
+        return PHASE[piece.type().ordinal()];
+    }
+}
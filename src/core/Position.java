@@ -0,0 +1,496 @@
+package core;
+
+import core.bitboard.Bitboards;
+import core.move.Move;
+import core.move.PackedMove;
+import core.square.File;
+import core.square.Square;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * A board together with the state needed to continue the game from it:
+ * side to move, castle rights, en passant file, the halfmove clock (for the
+ * fifty-move rule) and the Zobrist key.
+ * <p>
+ * Moves are applied in place with {@link #makeMove} and reverted with
+ * {@link #unmakeMove}, so trying a move costs no allocation.
+ */
+public final class Position {
+    /*
+     * Undo record layout (a long):
+     *  bits  0..3   captured piece index + 1 (0 = nothing captured)
+     *  bits  4..7   castle rights before the move
+     *  bits  8..11  en passant file + 1 before the move (0 = none)
+     *  bits 12..27  halfmove clock before the move
+     *  bit  28      the move was a promotion
+     *  bit  29      the move was an en passant capture
+     *  bit  30      the move was a castle
+     */
+    private static final int CAPTURE_SHIFT = 0;
+    private static final int CASTLE_SHIFT = 4;
+    private static final int EN_PASSANT_SHIFT = 8;
+    private static final int HALFMOVE_SHIFT = 12;
+    private static final long PROMOTION = 1L << 28;
+    private static final long EN_PASSANT = 1L << 29;
+    private static final long CASTLE = 1L << 30;
+    // the largest halfmove clock the undo record holds
+    static final int MAX_HALFMOVE_CLOCK = 0xFFFF;
+
+    private static final File[] FILES = File.values();
+
+    /**
+     * Rights kept when a piece moves from or to a square: moving the king
+     * or a rook, or capturing a rook on its home square, loses the right.
+     */
+    private static final int[] CASTLE_MASK = new int[64];
+
+    static {
+        Arrays.fill(CASTLE_MASK, 0xF);
+        CASTLE_MASK[0] &= ~CastleRights.WHITE_QUEENSIDE;  // a1
+        CASTLE_MASK[7] &= ~CastleRights.WHITE_KINGSIDE;   // h1
+        CASTLE_MASK[4] &= ~(CastleRights.WHITE_KINGSIDE | CastleRights.WHITE_QUEENSIDE);  // e1
+        CASTLE_MASK[56] &= ~CastleRights.BLACK_QUEENSIDE; // a8
+        CASTLE_MASK[63] &= ~CastleRights.BLACK_KINGSIDE;  // h8
+        CASTLE_MASK[60] &= ~(CastleRights.BLACK_KINGSIDE | CastleRights.BLACK_QUEENSIDE); // e8
+    }
+
+    private final Board board;
+    private Color toMove;
+    private int castleRights;
+    private File enPassantTarget;
+    private int halfmoveClock;
+    private long key;
+
+    Position(@NotNull Board board, @NotNull Color toMove,
+             @NotNull CastleRights castleRights, File enPassantTarget,
+             int halfmoveClock) {
+        this.board = board;
+        this.toMove = toMove;
+        this.castleRights = castleRights.bits();
+        this.enPassantTarget = enPassantTarget;
+        this.halfmoveClock = halfmoveClock;
+        this.key = Zobrist.key(board, toMove, this.castleRights, enPassantTarget);
+    }
+
+    private Position(@NotNull Position other) {
+        this.board = other.board.copy();
+        this.toMove = other.toMove;
+        this.castleRights = other.castleRights;
+        this.enPassantTarget = other.enPassantTarget;
+        this.halfmoveClock = other.halfmoveClock;
+        this.key = other.key;
+    }
+
+    /**
+     * @return the initial position
+     */
+    static @NotNull Position initial() {
+        return new Position(Board.defaultBoard(), Color.White,
+                new CastleRights(), null, 0);
+    }
+
+    /**
+     * @param fen a position in Forsyth-Edwards Notation, e.g.
+     *            {@code rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1}
+     *            (the clocks may be omitted)
+     * @return the position
+     * @throws IllegalArgumentException if the FEN is malformed
+     */
+    public static @NotNull Position fromFen(@NotNull String fen) throws IllegalArgumentException {
+        var fields = fen.trim().split("\\s+");
+        if (fields.length < 4)
+            throw new IllegalArgumentException("Invalid FEN: " + fen);
+
+        var board = new Board();
+        var ranks = fields[0].split("/");
+        if (ranks.length != 8)
+            throw new IllegalArgumentException("Invalid FEN board: " + fields[0]);
+        for (int r = 0; r < 8; r++) {
+            int file = 0;
+            for (char ch : ranks[r].toCharArray()) {
+                if (Character.isDigit(ch)) {
+                    file += ch - '0';
+                    continue;
+                }
+                var type = switch (Character.toLowerCase(ch)) {
+                    case 'p' -> PieceType.Pawn;
+                    case 'n' -> PieceType.Knight;
+                    case 'b' -> PieceType.Bishop;
+                    case 'r' -> PieceType.Rook;
+                    case 'q' -> PieceType.Queen;
+                    case 'k' -> PieceType.King;
+                    default -> throw new IllegalArgumentException("Invalid FEN piece: " + ch);
+                };
+                if (file > 7)
+                    throw new IllegalArgumentException("Invalid FEN rank: " + ranks[r]);
+                var color = Character.isUpperCase(ch) ? Color.White : Color.Black;
+                board.put((7 - r) * 8 + file++, Piece.of(type, color));
+            }
+            if (file != 8)
+                throw new IllegalArgumentException("Invalid FEN rank: " + ranks[r]);
+        }
+
+        var toMove = switch (fields[1]) {
+            case "w" -> Color.White;
+            case "b" -> Color.Black;
+            default -> throw new IllegalArgumentException("Invalid FEN side to move: " + fields[1]);
+        };
+        if (Long.bitCount(board.pieces(PieceType.King, Color.White)) != 1
+                || Long.bitCount(board.pieces(PieceType.King, Color.Black)) != 1)
+            throw new IllegalArgumentException("Invalid FEN: each side needs one king");
+
+        var rights = fields[2];
+        var castleRights = new CastleRights(rights.contains("K"), rights.contains("Q"),
+                rights.contains("k"), rights.contains("q"));
+
+        File enPassant = null;
+        if (!fields[3].equals("-")) {
+            // the square a pawn of the side not to move just skipped, with
+            // that pawn in front of it
+            char rank = toMove == Color.White ? '6' : '3';
+            if (fields[3].length() != 2 || fields[3].charAt(0) < 'a' || fields[3].charAt(0) > 'h'
+                    || fields[3].charAt(1) != rank)
+                throw new IllegalArgumentException("Invalid FEN en passant square: " + fields[3]);
+            int file = fields[3].charAt(0) - 'a';
+            int square = (rank - '1') * 8 + file;
+            int pawn = toMove == Color.White ? square - 8 : square + 8;
+            if (board.pieceAt(square) != null
+                    || board.pieceAt(pawn) != Piece.of(PieceType.Pawn, toMove.opposite()))
+                throw new IllegalArgumentException("Invalid FEN en passant square: " + fields[3]);
+            enPassant = FILES[file];
+        }
+
+        int halfmoveClock;
+        try {
+            halfmoveClock = fields.length > 4 ? Integer.parseInt(fields[4]) : 0;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid FEN halfmove clock: " + fields[4], e);
+        }
+        if (halfmoveClock < 0 || halfmoveClock > MAX_HALFMOVE_CLOCK)
+            throw new IllegalArgumentException("Invalid FEN halfmove clock: " + fields[4]);
+
+        return new Position(board, toMove, castleRights, enPassant, halfmoveClock);
+    }
+
+    /**
+     * @return the position in Forsyth-Edwards Notation (the fullmove number
+     * is not tracked and always written as 1)
+     */
+    public @NotNull String toFen() {
+        var fen = new StringBuilder();
+        for (int rank = 7; rank >= 0; rank--) {
+            int empty = 0;
+            for (int file = 0; file < 8; file++) {
+                var piece = this.board.pieceAt(rank * 8 + file);
+                if (piece == null) {
+                    empty++;
+                    continue;
+                }
+                if (empty > 0) fen.append(empty);
+                empty = 0;
+                char ch = "pnbrqk".charAt(piece.type().ordinal());
+                fen.append(piece.color() == Color.White ? Character.toUpperCase(ch) : ch);
+            }
+            if (empty > 0) fen.append(empty);
+            if (rank > 0) fen.append('/');
+        }
+
+        fen.append(this.toMove == Color.White ? " w " : " b ");
+        if (this.castleRights == 0) fen.append('-');
+        if ((this.castleRights & CastleRights.WHITE_KINGSIDE) != 0) fen.append('K');
+        if ((this.castleRights & CastleRights.WHITE_QUEENSIDE) != 0) fen.append('Q');
+        if ((this.castleRights & CastleRights.BLACK_KINGSIDE) != 0) fen.append('k');
+        if ((this.castleRights & CastleRights.BLACK_QUEENSIDE) != 0) fen.append('q');
+
+        if (this.enPassantTarget == null) {
+            fen.append(" -");
+        } else {
+            fen.append(' ').append(this.enPassantTarget)
+                    .append(this.toMove == Color.White ? '6' : '3');
+        }
+        return fen.append(' ').append(this.halfmoveClock).append(" 1").toString();
+    }
+
+    public @NotNull Position copy() {
+        return new Position(this);
+    }
+
+    /**
+     * @return the live board of this position (not a copy)
+     */
+    public @NotNull Board board() {
+        return this.board;
+    }
+
+    public @NotNull Color toMove() {
+        return this.toMove;
+    }
+
+    CastleRights castleRights() {
+        return CastleRights.fromBits(this.castleRights);
+    }
+
+    /**
+     * @return the castle rights packed as in {@link CastleRights#bits()}
+     */
+    int castleBits() {
+        return this.castleRights;
+    }
+
+    /**
+     * @return the file of the pawn that just made a double step, or null
+     */
+    public File enPassantTarget() {
+        return this.enPassantTarget;
+    }
+
+    /**
+     * @return the number of halfmoves since the last capture or pawn move
+     */
+    public int halfmoveClock() {
+        return this.halfmoveClock;
+    }
+
+    /**
+     * @return the Zobrist key of the position
+     */
+    public long key() {
+        return this.key;
+    }
+
+    /**
+     * @param square the square to test
+     * @param by     the attacking color
+     * @return if any piece of the given color attacks the square
+     */
+    public boolean isSquareAttacked(@NotNull Square square, @NotNull Color by) {
+        return this.board.isSquareAttacked(square, by);
+    }
+
+    /**
+     * @param color the color of the king
+     * @return if the king of the given color is attacked
+     * @throws java.util.NoSuchElementException If there is no king of that
+     *                                          color on the board.
+     */
+    public boolean isKingAttacked(@NotNull Color color) {
+        long king = this.board.pieces(PieceType.King, color);
+        if (king == 0) throw new NoSuchElementException("No king found");
+        return this.board.isSquareAttacked(Bitboards.first(king), color.opposite());
+    }
+
+    /**
+     * @return if the side to move is in check
+     */
+    public boolean isInCheck() {
+        return isKingAttacked(this.toMove);
+    }
+
+    /**
+     * Pack a move, setting the en passant and castle flags from the piece
+     * on its source square.
+     *
+     * @param move the move to pack; a queen is assumed if the promotion
+     *             piece of a pawn reaching the last rank is missing
+     * @return the {@link PackedMove packed move}
+     */
+    public int pack(@NotNull Move move) {
+        int from = move.from().index();
+        int to = move.to().index();
+        var piece = this.board.pieceAt(from);
+        if (piece == null) return PackedMove.of(from, to);
+
+        if (piece.type() == PieceType.Pawn) {
+            int rank = to >>> 3;
+            if (rank == 0 || rank == 7)
+                return PackedMove.of(from, to, move.promotion().orElse(PieceType.Queen));
+            if (((from ^ to) & 7) != 0 && this.board.pieceAt(to) == null)
+                return PackedMove.enPassant(from, to);
+        } else if (piece.type() == PieceType.King && Math.abs(to - from) == 2) {
+            return PackedMove.castle(from, to);
+        }
+        return PackedMove.of(from, to);
+    }
+
+    /**
+     * Apply a move in place.
+     *
+     * @param move the move to make; it is not validated. A promotion piece
+     *             is only used if a pawn reaches the last rank (a queen is
+     *             assumed if it is missing).
+     * @return an undo record to pass to {@link #unmakeMove}
+     */
+    public long makeMove(@NotNull Move move) {
+        return makeMove(pack(move));
+    }
+
+    /**
+     * Apply a packed move in place.
+     *
+     * @param move the {@link PackedMove packed move} to make, with its flags
+     *             set (as generated by {@link MoveGenerator}); it is not
+     *             validated
+     * @return an undo record to pass to {@link #unmakeMove}
+     */
+    public long makeMove(int move) {
+        int from = PackedMove.from(move);
+        int to = PackedMove.to(move);
+        var piece = this.board.pieceAt(from);
+        var captured = this.board.pieceAt(to);
+
+        long undo = (long) (captured == null ? 0 : captured.index() + 1) << CAPTURE_SHIFT
+                | (long) this.castleRights << CASTLE_SHIFT
+                | (long) (this.enPassantTarget == null ? 0 : this.enPassantTarget.ordinal() + 1) << EN_PASSANT_SHIFT
+                | (long) (this.halfmoveClock & MAX_HALFMOVE_CLOCK) << HALFMOVE_SHIFT;
+
+        long key = this.key
+                ^ Zobrist.castleRights(this.castleRights)
+                ^ Zobrist.enPassant(this.enPassantTarget)
+                ^ Zobrist.sideToMove(Color.Black);
+
+        if (captured != null) {
+            this.board.remove(to);
+            key ^= Zobrist.piece(captured, to);
+        }
+        this.board.remove(from);
+        key ^= Zobrist.piece(piece, from);
+
+        var placed = piece;
+        this.enPassantTarget = null;
+        // stays within its field of the undo record, long past any draw
+        if (this.halfmoveClock < MAX_HALFMOVE_CLOCK) this.halfmoveClock++;
+
+        switch (PackedMove.flag(move)) {
+            case PackedMove.PROMOTION -> {
+                placed = Piece.of(PackedMove.promotion(move), piece.color());
+                undo |= PROMOTION;
+            }
+            case PackedMove.EN_PASSANT -> {
+                // the captured pawn is behind the target square
+                int victim = (from & ~7) | (to & 7);
+                key ^= Zobrist.piece(this.board.remove(victim), victim);
+                undo |= EN_PASSANT;
+            }
+            case PackedMove.CASTLE -> {
+                int rookFrom = to > from ? from + 3 : from - 4;
+                int rookTo = to > from ? from + 1 : from - 1;
+                var rook = this.board.remove(rookFrom);
+                this.board.put(rookTo, rook);
+                key ^= Zobrist.piece(rook, rookFrom) ^ Zobrist.piece(rook, rookTo);
+                undo |= CASTLE;
+            }
+            default -> {
+                if (piece.type() == PieceType.Pawn && Math.abs(to - from) == 16)
+                    this.enPassantTarget = FILES[to & 7];
+            }
+        }
+
+        if (captured != null || piece.type() == PieceType.Pawn) this.halfmoveClock = 0;
+
+        this.board.put(to, placed);
+        key ^= Zobrist.piece(placed, to);
+
+        this.castleRights &= CASTLE_MASK[from] & CASTLE_MASK[to];
+        this.toMove = this.toMove.opposite();
+
+        this.key = key
+                ^ Zobrist.castleRights(this.castleRights)
+                ^ Zobrist.enPassant(this.enPassantTarget);
+        return undo;
+    }
+
+    /**
+     * Revert a move made with {@link #makeMove}.
+     *
+     * @param move the move that was made
+     * @param undo the undo record returned by {@link #makeMove}
+     */
+    public void unmakeMove(@NotNull Move move, long undo) {
+        unmakeMove(PackedMove.of(move.from().index(), move.to().index()), undo);
+    }
+
+    /**
+     * Revert a packed move made with {@link #makeMove}.
+     *
+     * @param move the move that was made (only its squares are used)
+     * @param undo the undo record returned by {@link #makeMove}
+     */
+    public void unmakeMove(int move, long undo) {
+        int from = PackedMove.from(move);
+        int to = PackedMove.to(move);
+        int capturedIndex = (int) (undo >>> CAPTURE_SHIFT & 0xF) - 1;
+        int enPassantFile = (int) (undo >>> EN_PASSANT_SHIFT & 0xF) - 1;
+
+        this.toMove = this.toMove.opposite();
+        long key = this.key
+                ^ Zobrist.castleRights(this.castleRights)
+                ^ Zobrist.enPassant(this.enPassantTarget)
+                ^ Zobrist.sideToMove(Color.Black);
+
+        var placed = this.board.remove(to);
+        key ^= Zobrist.piece(placed, to);
+        var piece = (undo & PROMOTION) == 0 ? placed
+                : Piece.of(PieceType.Pawn, placed.color());
+
+        this.board.put(from, piece);
+        key ^= Zobrist.piece(piece, from);
+
+        if (capturedIndex >= 0) {
+            var captured = Piece.fromIndex(capturedIndex);
+            this.board.put(to, captured);
+            key ^= Zobrist.piece(captured, to);
+        } else if ((undo & EN_PASSANT) != 0) {
+            // en passant: restore the captured pawn behind the target square
+            int victim = (from & ~7) | (to & 7);
+            var pawn = Piece.of(PieceType.Pawn, piece.color().opposite());
+            this.board.put(victim, pawn);
+            key ^= Zobrist.piece(pawn, victim);
+        } else if ((undo & CASTLE) != 0) {
+            int rookFrom = to > from ? from + 3 : from - 4;
+            int rookTo = to > from ? from + 1 : from - 1;
+            var rook = this.board.remove(rookTo);
+            this.board.put(rookFrom, rook);
+            key ^= Zobrist.piece(rook, rookFrom) ^ Zobrist.piece(rook, rookTo);
+        }
+
+        this.castleRights = (int) (undo >>> CASTLE_SHIFT & 0xF);
+        this.enPassantTarget = enPassantFile < 0 ? null : FILES[enPassantFile];
+        this.halfmoveClock = (int) (undo >>> HALFMOVE_SHIFT & MAX_HALFMOVE_CLOCK);
+        this.key = key
+                ^ Zobrist.castleRights(this.castleRights)
+                ^ Zobrist.enPassant(this.enPassantTarget);
+    }
+
+    /**
+     * Pass the turn, for the null move pruning of a search. The en passant
+     * target is cleared and the halfmove clock restarts, so that no
+     * repetition is found across the null move.
+     *
+     * @return an undo record to pass to {@link #unmakeNullMove}
+     */
+    public long makeNullMove() {
+        long undo = (long) (this.enPassantTarget == null ? 0 : this.enPassantTarget.ordinal() + 1) << EN_PASSANT_SHIFT
+                | (long) (this.halfmoveClock & MAX_HALFMOVE_CLOCK) << HALFMOVE_SHIFT;
+        this.key ^= Zobrist.enPassant(this.enPassantTarget) ^ Zobrist.sideToMove(Color.Black);
+        this.enPassantTarget = null;
+        this.halfmoveClock = 0;
+        this.toMove = this.toMove.opposite();
+        return undo;
+    }
+
+    /**
+     * Revert {@link #makeNullMove}.
+     *
+     * @param undo the undo record returned by {@link #makeNullMove}
+     */
+    public void unmakeNullMove(long undo) {
+        int enPassantFile = (int) (undo >>> EN_PASSANT_SHIFT & 0xF) - 1;
+        this.toMove = this.toMove.opposite();
+        this.enPassantTarget = enPassantFile < 0 ? null : FILES[enPassantFile];
+        this.halfmoveClock = (int) (undo >>> HALFMOVE_SHIFT & MAX_HALFMOVE_CLOCK);
+        this.key ^= Zobrist.enPassant(this.enPassantTarget) ^ Zobrist.sideToMove(Color.Black);
+    }
+}
@@ -0,0 +1,81 @@
+package core;
+
+import core.square.File;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.SplittableRandom;
+
+/**
+ * Random keys for Zobrist hashing.
+ * <p>
+ * A position key is the XOR of one key per (piece, square), one per
+ * castle right held, one for the en passant file (if any) and one if black
+ * is to move. Making a move only XORs in/out the keys that changed.
+ */
+final class Zobrist {
+    private static final long[][] PIECES = new long[12][64];
+    private static final long[] CASTLE = new long[16];
+    private static final long[] EN_PASSANT = new long[8];
+    private static final long BLACK_TO_MOVE;
+
+    static {
+        // fixed seed: keys must be stable between runs
+        var random = new SplittableRandom(0x5DEECE66DL);
+        for (var piece : PIECES) {
+            for (int sq = 0; sq < 64; sq++) {
+                piece[sq] = random.nextLong();
+            }
+        }
+        // one key per right; every combination is the XOR of its rights
+        for (int i = 0; i < 4; i++) {
+            CASTLE[1 << i] = random.nextLong();
+        }
+        for (int bits = 1; bits < CASTLE.length; bits++) {
+            CASTLE[bits] = CASTLE[bits & -bits] ^ CASTLE[bits & (bits - 1)];
+        }
+        for (int i = 0; i < EN_PASSANT.length; i++) {
+            EN_PASSANT[i] = random.nextLong();
+        }
+        BLACK_TO_MOVE = random.nextLong();
+    }
+
+    private Zobrist() {
+    }
+
+    static long piece(@NotNull Piece piece, int square) {
+        return PIECES[piece.index()][square];
+    }
+
+    /**
+     * @param rights the castle rights as returned by {@link CastleRights#bits()}
+     */
+    static long castleRights(int rights) {
+        return CASTLE[rights];
+    }
+
+    /**
+     * @param file the en passant file, or null if there is none
+     */
+    static long enPassant(File file) {
+        return file == null ? 0L : EN_PASSANT[file.ordinal()];
+    }
+
+    static long sideToMove(@NotNull Color color) {
+        return color == Color.Black ? BLACK_TO_MOVE : 0L;
+    }
+
+    /**
+     * @return the key of a position, computed from scratch
+     */
+    static long key(@NotNull Board board, @NotNull Color toMove,
+                    int castleRights, File enPassantTarget) {
+        long key = 0L;
+        for (long set = board.occupied(); set != 0; set &= set - 1) {
+            int sq = Long.numberOfTrailingZeros(set);
+            key ^= piece(board.pieceAt(sq), sq);
+        }
+        return key ^ castleRights(castleRights)
+                ^ enPassant(enPassantTarget)
+                ^ sideToMove(toMove);
+    }
+}
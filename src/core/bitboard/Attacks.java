@@ -0,0 +1,254 @@
+package core.bitboard;
+
+import core.Color;
+
+/**
+ * Precomputed attack tables.
+ * <p>
+ * Leaper attacks (knight, king, pawn) and empty-board rays are plain
+ * per-square lookups. Slider attacks (bishop, rook) use magic bitboards: the
+ * relevant blockers of a square are multiplied by a magic number whose top
+ * bits index a table of blocker-aware attack sets, so a slider lookup is one
+ * multiply, one shift and one array read.
+ * <p>
+ * The magic numbers were found offline by trial (random sparse candidates
+ * until one maps every blocker subset without a destructive collision); only
+ * the tables are built at class initialisation.
+ */
+public final class Attacks {
+    private static final int[][] KNIGHT_OFFSETS = {{1, 2}, {2, 1}, {2, -1}, {1, -2},
+            {-1, -2}, {-2, -1}, {-2, 1}, {-1, 2}};
+    private static final int[][] KING_OFFSETS = {{1, 1}, {1, 0}, {1, -1}, {0, 1},
+            {0, -1}, {-1, 1}, {-1, 0}, {-1, -1}};
+
+    private static final long[] KNIGHT = new long[64];
+    private static final long[] KING = new long[64];
+    private static final long[][] PAWN = new long[2][64];
+    private static final long[][] RAYS = new long[8][64];
+
+    private static final long[] ROOK_MAGICS = {
+            0x1080004008801020L, 0x0840092002C03000L, 0x1900200010400900L, 0x0880100008000480L,
+            0x4200100420080200L, 0x8100020100080400L, 0x0200040110886200L, 0x0200008040220411L,
+            0x0404800084400220L, 0x0000401000402000L, 0x0086001081220440L, 0x0408800800100280L,
+            0x000A001201040820L, 0x8848800200840080L, 0x4001000100040200L, 0x0442000102105084L,
+            0x9080010020804100L, 0x0040404000201009L, 0x0000808010002009L, 0x2200090021D00100L,
+            0x0008008008040080L, 0x0004004002010040L, 0x0011040008015042L, 0x00000A0001768104L,
+            0x0000800080204009L, 0x2010004140002001L, 0x9800200280100080L, 0x1000100080080080L,
+            0x0442000A00049020L, 0x2100040080020080L, 0x0800120400900148L, 0x0010040A00128541L,
+            0x2800804000800030L, 0x1010002000400041L, 0x4000200011004100L, 0x0610008410800800L,
+            0x0400802402800800L, 0xC100020080800400L, 0x0002000802000401L, 0x0182085882000401L,
+            0x0220204000808000L, 0x2860100040024022L, 0x0001002004110040L, 0x99101042000A0020L,
+            0x0004080004008080L, 0x0010040002008080L, 0x2012004881020004L, 0x8300842444820011L,
+            0x0088403882010200L, 0x0820400080210100L, 0x0110910040A00300L, 0x0801100280080480L,
+            0x0242009008200600L, 0x1002000489500200L, 0x0040800200010080L, 0x0091800041000080L,
+            0x0000209300488001L, 0x04C1002414824001L, 0x020020000B001041L, 0x7000100004200901L,
+            0x8002002004100802L, 0x30010002084C0007L, 0x0888221800813004L, 0x4000002840840112L
+    };
+
+    private static final long[] BISHOP_MAGICS = {
+            0xA010041108003100L, 0x006082020A002900L, 0x6810010619200000L, 0x08281A0520000408L,
+            0x0001104001000400L, 0x0018901008048400L, 0x00040A0210245280L, 0x000200210808A402L,
+            0x9140048410821200L, 0x0800091010820041L, 0x20504804832202C0L, 0x0100091401081000L,
+            0x8021011140000012L, 0x0810020804450400L, 0x208B0542109008A2L, 0x0080084A08040204L,
+            0x0040E2A80811244CL, 0x2505022008008108L, 0x0430220100420040L, 0x010A040420220040L,
+            0x1105000290400000L, 0x0093001200822120L, 0x4000A62048043004L, 0x280120048A015004L,
+            0x006090002A020814L, 0x44042000240800D0L, 0x01102800040A4400L, 0x1004080080220040L,
+            0x0001001011004024L, 0x0010044000805040L, 0x0914041200820100L, 0x0004821012821480L,
+            0x0024040500C05021L, 0x0088611002080200L, 0x0116080A00040020L, 0x4000020080080080L,
+            0x2450450140840040L, 0x0000880201484100L, 0x0222020404020092L, 0x8081110600002E00L,
+            0x2842101105000801L, 0x1100809008001025L, 0x00020202221C0400L, 0x0422014022009020L,
+            0x0210046102100C00L, 0xC004008082029102L, 0x00AA461801101200L, 0x0404080080201108L,
+            0x020542108C205002L, 0x0410544804100100L, 0x0040910841100000L, 0x0400200042021100L,
+            0x00004204850400C0L, 0x0200100410A42102L, 0x1040020801210102L, 0x0805040410420000L,
+            0x2884804130100200L, 0x800C262201242000L, 0x1058000194108800L, 0x0014221054420204L,
+            0x0104000012A02200L, 0x0200881003300100L, 0x0140400202840100L, 0x0402020801010201L
+    };
+
+    private static final Magic[] ROOK = new Magic[64];
+    private static final Magic[] BISHOP = new Magic[64];
+
+    private static final long[][] BETWEEN = new long[64][64];
+    private static final long[][] LINE = new long[64][64];
+
+    static {
+        for (int sq = 0; sq < 64; sq++) {
+            KNIGHT[sq] = leaper(sq, KNIGHT_OFFSETS);
+            KING[sq] = leaper(sq, KING_OFFSETS);
+            PAWN[Color.White.ordinal()][sq] = leaper(sq, new int[][]{{-1, 1}, {1, 1}});
+            PAWN[Color.Black.ordinal()][sq] = leaper(sq, new int[][]{{-1, -1}, {1, -1}});
+            for (var direction : Direction.values())
+                RAYS[direction.ordinal()][sq] = slidingAttacks(sq, 0L, new Direction[]{direction});
+        }
+
+        var rook = Direction.rook();
+        var bishop = Direction.bishop();
+        for (int sq = 0; sq < 64; sq++) {
+            ROOK[sq] = Magic.build(sq, rook, ROOK_MAGICS[sq]);
+            BISHOP[sq] = Magic.build(sq, bishop, BISHOP_MAGICS[sq]);
+        }
+
+        for (int a = 0; a < 64; a++) {
+            for (int b = 0; b < 64; b++) {
+                long ends = (1L << a) | (1L << b);
+                if (a == b) continue;
+                if ((rook(a, 0L) & (1L << b)) != 0) {
+                    BETWEEN[a][b] = rook(a, 1L << b) & rook(b, 1L << a);
+                    LINE[a][b] = (rook(a, 0L) & rook(b, 0L)) | ends;
+                } else if ((bishop(a, 0L) & (1L << b)) != 0) {
+                    BETWEEN[a][b] = bishop(a, 1L << b) & bishop(b, 1L << a);
+                    LINE[a][b] = (bishop(a, 0L) & bishop(b, 0L)) | ends;
+                }
+            }
+        }
+    }
+
+    private Attacks() {
+    }
+
+    public static long knight(int square) {
+        return KNIGHT[square];
+    }
+
+    public static long king(int square) {
+        return KING[square];
+    }
+
+    /**
+     * @param color  the color of the pawn
+     * @param square the square the pawn is on
+     * @return the squares the pawn attacks (diagonally forward)
+     */
+    public static long pawn(Color color, int square) {
+        return PAWN[color.ordinal()][square];
+    }
+
+    /**
+     * @param square   the square the bishop is on
+     * @param occupied all occupied squares
+     * @return the squares the bishop attacks, up to and including the first
+     * blocker in each direction
+     */
+    public static long bishop(int square, long occupied) {
+        return BISHOP[square].attacks(occupied);
+    }
+
+    /**
+     * @param square   the square the rook is on
+     * @param occupied all occupied squares
+     * @return the squares the rook attacks, up to and including the first
+     * blocker in each direction
+     */
+    public static long rook(int square, long occupied) {
+        return ROOK[square].attacks(occupied);
+    }
+
+    public static long queen(int square, long occupied) {
+        return BISHOP[square].attacks(occupied) | ROOK[square].attacks(occupied);
+    }
+
+    /**
+     * @param direction the direction of the ray
+     * @param square    the origin of the ray
+     * @return the squares from the origin (excluded) to the edge of the
+     * board in the given direction
+     */
+    public static long ray(Direction direction, int square) {
+        return RAYS[direction.ordinal()][square];
+    }
+
+    /**
+     * @return the squares strictly between a and b if they share a rank, file
+     * or diagonal, otherwise the empty set
+     */
+    public static long between(int a, int b) {
+        return BETWEEN[a][b];
+    }
+
+    /**
+     * @return the whole line (edge to edge) through a and b if they share a
+     * rank, file or diagonal, otherwise the empty set
+     */
+    public static long line(int a, int b) {
+        return LINE[a][b];
+    }
+
+    private static long leaper(int square, int[][] offsets) {
+        long attacks = 0L;
+        int file = square & 7;
+        int rank = square >>> 3;
+        for (var offset : offsets) {
+            int f = file + offset[0];
+            int r = rank + offset[1];
+            if (f >= 0 && f < 8 && r >= 0 && r < 8)
+                attacks |= 1L << (r * 8 + f);
+        }
+        return attacks;
+    }
+
+    /**
+     * Walks the rays from a square, stopping at (and including) the first
+     * blocker. Only used to fill the tables.
+     */
+    private static long slidingAttacks(int square, long occupied, Direction[] directions) {
+        long attacks = 0L;
+        for (var direction : directions) {
+            int f = (square & 7) + direction.fileDelta();
+            int r = (square >>> 3) + direction.rankDelta();
+            while (f >= 0 && f < 8 && r >= 0 && r < 8) {
+                long bit = 1L << (r * 8 + f);
+                attacks |= bit;
+                if ((occupied & bit) != 0) break;
+                f += direction.fileDelta();
+                r += direction.rankDelta();
+            }
+        }
+        return attacks;
+    }
+
+    /**
+     * @return the squares whose occupancy can change the attacks of a slider
+     * on the given square (the rays without their last square)
+     */
+    private static long relevantMask(int square, Direction[] directions) {
+        long mask = 0L;
+        for (var direction : directions) {
+            int df = direction.fileDelta();
+            int dr = direction.rankDelta();
+            int f = (square & 7) + df;
+            int r = (square >>> 3) + dr;
+            while (f + df >= 0 && f + df < 8 && r + dr >= 0 && r + dr < 8) {
+                mask |= 1L << (r * 8 + f);
+                f += df;
+                r += dr;
+            }
+        }
+        return mask;
+    }
+
+    private record Magic(long mask, long magic, int shift, long[] table) {
+        long attacks(long occupied) {
+            return this.table[(int) (((occupied & this.mask) * this.magic) >>> this.shift)];
+        }
+
+        static Magic build(int square, Direction[] directions, long magic) {
+            long mask = relevantMask(square, directions);
+            int bits = Long.bitCount(mask);
+            var table = new long[1 << bits];
+            var filled = new boolean[1 << bits];
+
+            // enumerate every blocker subset of the mask (carry-rippler)
+            long subset = 0L;
+            do {
+                int index = (int) ((subset * magic) >>> (64 - bits));
+                long attacks = slidingAttacks(square, subset, directions);
+                if (filled[index] && table[index] != attacks)
+                    throw new IllegalStateException("Bad magic for square " + square);
+                filled[index] = true;
+                table[index] = attacks;
+                subset = (subset - mask) & mask;
+            } while (subset != 0);
+
+            return new Magic(mask, magic, 64 - bits, table);
+        }
+    }
+}
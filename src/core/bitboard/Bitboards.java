@@ -0,0 +1,69 @@
+package core.bitboard;
+
+import core.square.Square;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+
+/**
+ * Helpers for 64-bit square sets.
+ * <p>
+ * Bit {@code i} stands for the square with index {@code i}, where
+ * {@code index = rank * 8 + file} (a1 = 0, h1 = 7, a8 = 56, h8 = 63), see
+ * {@link Square#index()}.
+ */
+public final class Bitboards {
+    public static final long EMPTY = 0L;
+    public static final long ALL = ~0L;
+
+    private Bitboards() {
+    }
+
+    /**
+     * @param index the square index (0..63)
+     * @return a set containing only that square
+     */
+    public static long bit(int index) {
+        return 1L << index;
+    }
+
+    public static boolean contains(long set, int index) {
+        return (set & (1L << index)) != 0;
+    }
+
+    /**
+     * @param index the square index (0..63)
+     * @return the set of squares on the same file
+     */
+    public static long fileMask(int index) {
+        return 0x0101010101010101L << (index & 7);
+    }
+
+    /**
+     * @param index the square index (0..63)
+     * @return the set of squares on the same rank
+     */
+    public static long rankMask(int index) {
+        return 0xFFL << (index & ~7);
+    }
+
+    /**
+     * @param set a non-empty set
+     * @return the index of the lowest square in the set
+     */
+    public static int first(long set) {
+        return Long.numberOfTrailingZeros(set);
+    }
+
+    /**
+     * @param set the set to convert
+     * @return the squares in the set, in index order
+     */
+    public static @NotNull ArrayList<Square> toSquares(long set) {
+        var squares = new ArrayList<Square>(Long.bitCount(set));
+        for (; set != 0; set &= set - 1) {
+            squares.add(Square.of(Long.numberOfTrailingZeros(set)));
+        }
+        return squares;
+    }
+}
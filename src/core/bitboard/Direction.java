@@ -0,0 +1,49 @@
+package core.bitboard;
+
+/**
+ * The eight directions a piece can slide or step in, as file and rank
+ * deltas.
+ */
+public enum Direction {
+    North(0, 1),
+    NorthEast(1, 1),
+    East(1, 0),
+    SouthEast(1, -1),
+    South(0, -1),
+    SouthWest(-1, -1),
+    West(-1, 0),
+    NorthWest(-1, 1);
+
+    private static final Direction[] ROOK = {North, East, South, West};
+    private static final Direction[] BISHOP = {NorthEast, SouthEast, SouthWest, NorthWest};
+
+    private final int fileDelta;
+    private final int rankDelta;
+
+    Direction(int fileDelta, int rankDelta) {
+        this.fileDelta = fileDelta;
+        this.rankDelta = rankDelta;
+    }
+
+    public int fileDelta() {
+        return this.fileDelta;
+    }
+
+    public int rankDelta() {
+        return this.rankDelta;
+    }
+
+    /**
+     * @return the directions a rook slides in (a new array)
+     */
+    public static Direction[] rook() {
+        return ROOK.clone();
+    }
+
+    /**
+     * @return the directions a bishop slides in (a new array)
+     */
+    public static Direction[] bishop() {
+        return BISHOP.clone();
+    }
+}
@@ -0,0 +1,66 @@
+package core.engine;
+
+import core.Board;
+import core.Color;
+import core.Position;
+import core.bitboard.Bitboards;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Static evaluation: material, piece-square tables and pawn structure,
+ * tapered between their midgame and endgame values by the game phase.
+ * <p>
+ * The board keeps the midgame and endgame piece-square totals up to date as
+ * pieces are placed and removed (see {@link Board#midgame()}), and the pawn
+ * structure terms come from a {@link PawnTable}, so evaluating mostly
+ * blends a few numbers rather than scanning the board.
+ */
+public final class Evaluation {
+    /**
+     * Endgame bonus, by rank from the pawn's side, for a passed pawn whose
+     * next square is empty
+     */
+    private static final int[] FREE_PASSED_ENDGAME = {0, 0, 5, 10, 20, 35, 60, 0};
+
+    private Evaluation() {
+    }
+
+    /**
+     * Evaluate without a pawn table to cache the pawn structure in.
+     *
+     * @see #evaluate(Position, PawnTable)
+     */
+    public static int evaluate(@NotNull Position position) {
+        return evaluate(position, new PawnTable(1));
+    }
+
+    /**
+     * @param pawns the table to look the pawn structure up in
+     * @return the score of the position in centipawns, from the point of
+     * view of the side to move
+     */
+    public static int evaluate(@NotNull Position position, @NotNull PawnTable pawns) {
+        var board = position.board();
+        int entry = pawns.probe(board);
+        int midgame = board.midgame() + pawns.midgame(entry);
+        int endgame = board.endgame() + pawns.endgame(entry)
+                + freePassed(board, pawns.passed(entry, Color.White), Color.White)
+                - freePassed(board, pawns.passed(entry, Color.Black), Color.Black);
+
+        int phase = Math.min(board.phase(), Board.MAX_PHASE);
+        int score = (midgame * phase + endgame * (Board.MAX_PHASE - phase)) / Board.MAX_PHASE;
+        return position.toMove() == Color.White ? score : -score;
+    }
+
+    private static int freePassed(Board board, long passed, Color color) {
+        long stops = color == Color.White ? passed << 8 : passed >>> 8;
+        int bonus = 0;
+        for (long free = stops & ~board.occupied(); free != 0; free &= free - 1) {
+            int stop = Bitboards.first(free);
+            // the rank of the pawn, one behind its stop square
+            int rank = color == Color.White ? (stop >>> 3) - 1 : 6 - (stop >>> 3);
+            bonus += FREE_PASSED_ENDGAME[rank];
+        }
+        return bonus;
+    }
+}
@@ -0,0 +1,193 @@
+package core.engine;
+
+import core.Color;
+import core.MoveGenerator;
+import core.Piece;
+import core.PieceType;
+import core.Position;
+import core.move.PackedMove;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Orders the moves of a search node so the ones most likely to cause a
+ * cutoff are searched first, in stages:
+ * <ol>
+ *     <li>the hash move;</li>
+ *     <li>captures and queen promotions, most valuable victim first and,
+ *     among equal victims, least valuable attacker first (MVV-LVA, by
+ *     {@link Piece#value()});</li>
+ *     <li>the two killer moves of the ply: quiet moves that caused a cutoff
+ *     in a sibling node;</li>
+ *     <li>captures that lose material by {@link StaticExchange static
+ *     exchange}, still by MVV-LVA;</li>
+ *     <li>the other quiet moves, by their butterfly history: how often (and
+ *     how deep) the same from-to move of the same side caused a cutoff.</li>
+ * </ol>
+ * The moves are scored once per node and then picked one at a time with a
+ * selection step, so a cutoff on an early move saves sorting the rest.
+ */
+final class MoveOrdering {
+    private static final int HASH_MOVE = 1 << 30;
+    private static final int CAPTURE = 1 << 28;
+    private static final int KILLER = 1 << 26;
+    private static final int LOSING_CAPTURE = 1 << 25;
+    /**
+     * History scores stay below this, under the killers; reaching it halves
+     * the table
+     */
+    private static final int HISTORY_LIMIT = 1 << 20;
+
+    private final int[][] scores;
+    private final int[][] killers;
+    // [color][from * 64 + to]
+    private final int[][] history;
+    private final int[] exchange;
+
+    private long cutoffs;
+    private long firstMoveCutoffs;
+
+    MoveOrdering() {
+        this.scores = new int[Search.MAX_PLY][MoveGenerator.MAX_MOVES];
+        this.killers = new int[Search.MAX_PLY][2];
+        this.history = new int[2][64 * 64];
+        this.exchange = new int[StaticExchange.MAX_EXCHANGE];
+    }
+
+    /**
+     * Forget the killers and cutoff counts of the previous search and age
+     * its history, which still says something about the new position
+     */
+    void newSearch() {
+        for (var killers : this.killers) {
+            killers[0] = killers[1] = PackedMove.NONE;
+        }
+        ageHistory();
+        this.cutoffs = 0;
+        this.firstMoveCutoffs = 0;
+    }
+
+    /**
+     * Score the moves of a node; call before picking them with {@link #next}.
+     *
+     * @param hashMove the move to search first, or {@link PackedMove#NONE}
+     */
+    void score(@NotNull Position position, int[] moves, int count, int ply, int hashMove) {
+        var board = position.board();
+        var scores = this.scores[ply];
+        var history = this.history[position.toMove().ordinal()];
+        var killers = this.killers[ply];
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            int from = PackedMove.from(move);
+            int to = PackedMove.to(move);
+            int victim = victimValue(position, move);
+            if (move == hashMove) {
+                scores[i] = HASH_MOVE;
+            } else if (victim > 0) {
+                int mvvLva = victim * 256 - board.pieceAt(from).value();
+                scores[i] = (staticExchange(position, move) < 0 ? LOSING_CAPTURE : CAPTURE) + mvvLva;
+            } else if (move == killers[0]) {
+                scores[i] = KILLER + 1;
+            } else if (move == killers[1]) {
+                scores[i] = KILLER;
+            } else {
+                scores[i] = history[from * 64 + to];
+            }
+        }
+    }
+
+    /**
+     * Move the best scored of the moves not yet searched to the given
+     * index.
+     *
+     * @param index the number of moves already searched
+     * @return the move to search next
+     */
+    int next(int[] moves, int count, int index, int ply) {
+        var scores = this.scores[ply];
+        int best = index;
+        for (int i = index + 1; i < count; i++) {
+            if (scores[i] > scores[best]) best = i;
+        }
+        if (best != index) {
+            int move = moves[best];
+            moves[best] = moves[index];
+            moves[index] = move;
+            int score = scores[best];
+            scores[best] = scores[index];
+            scores[index] = score;
+        }
+        return moves[index];
+    }
+
+    /**
+     * Record a beta cutoff. A quiet move becomes a killer of the ply and
+     * gains history.
+     *
+     * @param position the position of the node (before the move)
+     * @param index    the number of moves searched before this one
+     */
+    void cutoff(@NotNull Position position, int move, int ply, int depth, int index) {
+        this.cutoffs++;
+        if (index == 0) this.firstMoveCutoffs++;
+        if (!isQuiet(position, move)) return;
+
+        var killers = this.killers[ply];
+        if (killers[0] != move) {
+            killers[1] = killers[0];
+            killers[0] = move;
+        }
+
+        var history = this.history[position.toMove().ordinal()];
+        int i = PackedMove.from(move) * 64 + PackedMove.to(move);
+        history[i] += depth * depth;
+        if (history[i] >= HISTORY_LIMIT) ageHistory();
+    }
+
+    /**
+     * @return the share of the beta cutoffs of the search that happened on
+     * the first move searched, or 0 before any cutoff
+     */
+    double firstMoveCutoffRate() {
+        return this.cutoffs == 0 ? 0 : (double) this.firstMoveCutoffs / this.cutoffs;
+    }
+
+    /**
+     * @see StaticExchange#evaluate(Position, int)
+     */
+    int staticExchange(@NotNull Position position, int move) {
+        return StaticExchange.evaluate(position, move, this.exchange);
+    }
+
+    /**
+     * @return if the move neither captures nor promotes to a queen
+     */
+    static boolean isQuiet(@NotNull Position position, int move) {
+        return victimValue(position, move) == 0;
+    }
+
+    /**
+     * @return the value won by a capture or queen promotion (a promotion
+     * counts as capturing the queen minus the pawn), or 0
+     */
+    private static int victimValue(Position position, int move) {
+        var board = position.board();
+        int value = switch (PackedMove.flag(move)) {
+            case PackedMove.EN_PASSANT -> Piece.of(PieceType.Pawn, Color.White).value();
+            case PackedMove.PROMOTION -> PackedMove.promotion(move) == PieceType.Queen
+                    ? Piece.of(PieceType.Queen, Color.White).value()
+                    - Piece.of(PieceType.Pawn, Color.White).value() : 0;
+            default -> 0;
+        };
+        var captured = board.pieceAt(PackedMove.to(move));
+        return captured == null ? value : value + captured.value();
+    }
+
+    private void ageHistory() {
+        for (var history : this.history) {
+            for (int i = 0; i < history.length; i++) {
+                history[i] >>= 1;
+            }
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package core.engine;
+
+import core.ChessGame;
+import core.MoveGenerator;
+import core.move.PackedMove;
+
+class MoveOrderingTest {
+
+    private static int[] order(MoveOrdering ordering, ChessGame game, int hashMove) {
+        var position = game.position();
+        var moves = new int[MoveGenerator.MAX_MOVES];
+        int count = new MoveGenerator(position).generate(moves);
+        ordering.score(position, moves, count, 0, hashMove);
+        var ordered = new int[count];
+        for (int i = 0; i < count; i++) {
+            ordered[i] = ordering.next(moves, count, i, 0);
+        }
+        return ordered;
+    }
+
+    @org.junit.jupiter.api.Test
+    void testStages() {
+        // the queen on d5 can be taken by the pawn or the rook
+        var game = ChessGame.fromFen("4k3/8/8/3q4/2P5/8/8/3RK3 w - - 0 1");
+        var ordering = new MoveOrdering();
+        var hashMove = PackedMove.of(4, 12); // Ke2
+        var moves = order(ordering, game, hashMove);
+        assert moves[0] == hashMove;
+        assert PackedMove.toString(moves[1]).equals("c4d5");
+        assert PackedMove.toString(moves[2]).equals("d1d5");
+
+        // a quiet cutoff move becomes the killer, searched after the captures
+        int killer = PackedMove.of(3, 0); // Ra1
+        ordering.cutoff(game.position(), killer, 0, 4, 5);
+        moves = order(ordering, game, PackedMove.NONE);
+        assert PackedMove.toString(moves[0]).equals("c4d5");
+        assert PackedMove.toString(moves[1]).equals("d1d5");
+        assert moves[2] == killer;
+    }
+
+    @org.junit.jupiter.api.Test
+    void testHistory() {
+        var game = new ChessGame();
+        var ordering = new MoveOrdering();
+        int move = PackedMove.of(6, 21); // Nf3
+        // at another ply, so it is not a killer here
+        ordering.cutoff(game.position(), move, 3, 6, 0);
+        assert order(ordering, game, PackedMove.NONE)[0] == move;
+        assert ordering.firstMoveCutoffRate() == 1;
+    }
+
+    @org.junit.jupiter.api.Test
+    void testFirstMoveCutoffRate() {
+        var search = new Search(ChessGame.fromFen(
+                "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1"));
+        assert search.firstMoveCutoffRate() == 0;
+        search.search(SearchLimits.depth(4));
+        assert search.firstMoveCutoffRate() > 0.8;
+    }
+}
@@ -0,0 +1,119 @@
+package core.engine;
+
+import core.ChessGame;
+import core.move.PackedMove;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Lazy SMP: several threads run the same iterative deepening search of the
+ * same position, sharing only the transposition table.
+ * <p>
+ * The threads race through the tree and fill the table with results the
+ * others pick up, which (with odd threads starting one ply deeper, so they
+ * don't move in lockstep) is enough to split the work without any explicit
+ * coordination. The main thread's limits decide when the search ends; the
+ * helpers are then stopped.
+ */
+public final class ParallelSearch {
+    private final Search[] searches;
+    private final TranspositionTable table;
+
+    /**
+     * @param game    the game to search the current position of (the game
+     *                itself is not modified)
+     * @param threads the number of search threads, including the calling one
+     */
+    public ParallelSearch(@NotNull ChessGame game, int threads) {
+        this(game, threads, new TranspositionTable(Search.DEFAULT_HASH_MB));
+    }
+
+    /**
+     * @param game    the game to search the current position of (the game
+     *                itself is not modified)
+     * @param threads the number of search threads, including the calling one
+     * @param table   the transposition table shared by the threads
+     */
+    public ParallelSearch(@NotNull ChessGame game, int threads, @NotNull TranspositionTable table) {
+        if (threads < 1) throw new IllegalArgumentException("Need at least one thread");
+
+        this.table = table;
+        this.searches = new Search[threads];
+        var history = game.positionKeys();
+        for (int i = 0; i < threads; i++) {
+            this.searches[i] = new Search(game.position(), history, table);
+        }
+    }
+
+    public int threads() {
+        return this.searches.length;
+    }
+
+    /**
+     * Search on all threads until the calling thread reaches a limit.
+     *
+     * @param limits the depth limit, and the node limit of each thread
+     * @return the deepest completed result (the calling thread's on ties),
+     * with the nodes of all threads
+     */
+    public @NotNull SearchResult search(@NotNull SearchLimits limits) {
+        this.table.newSearch();
+        // before any thread starts, so the stops below can't be undone
+        for (var search : this.searches) {
+            search.clearStop();
+        }
+
+        var results = new SearchResult[this.searches.length];
+        var helpers = new Thread[this.searches.length - 1];
+        for (int i = 1; i < this.searches.length; i++) {
+            int id = i;
+            helpers[i - 1] = new Thread(() -> results[id] =
+                    this.searches[id].iterate(limits, 1 + id % 2), "search-" + id);
+            helpers[i - 1].start();
+        }
+
+        results[0] = this.searches[0].iterate(limits, 1);
+
+        for (int i = 1; i < this.searches.length; i++) {
+            this.searches[i].stop();
+        }
+        for (var helper : helpers) {
+            try {
+                helper.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while stopping the search", e);
+            }
+        }
+
+        var best = results[0];
+        long nodes = 0;
+        for (int i = 0; i < results.length; i++) {
+            nodes += this.searches[i].nodes();
+            // a helper's cut short iteration is only a guess
+            var result = results[i];
+            if (result != null && this.searches[i].completedDepth() > best.depth()
+                    && result.move() != PackedMove.NONE)
+                best = result;
+        }
+        return new SearchResult(best.move(), best.score(), best.depth(), nodes, results[0].nanos());
+    }
+
+    /**
+     * Turn a pruning or reduction technique on or off for all threads; not
+     * while searching.
+     */
+    public void setEnabled(@NotNull SearchFeature feature, boolean enabled) {
+        for (var search : this.searches) {
+            search.setEnabled(feature, enabled);
+        }
+    }
+
+    /**
+     * Stop all threads as soon as possible; safe to call from another thread
+     */
+    public void stop() {
+        for (var search : this.searches) {
+            search.stop();
+        }
+    }
+}
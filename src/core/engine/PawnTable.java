@@ -0,0 +1,202 @@
+package core.engine;
+
+import core.Board;
+import core.Color;
+import core.PieceType;
+import core.bitboard.Attacks;
+import core.bitboard.Bitboards;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+
+/**
+ * Cache of pawn structure evaluations, keyed by {@link Board#pawnKey()}.
+ * <p>
+ * The pawn terms (doubled, isolated, backward and passed pawns) only depend
+ * on the pawns, which rarely move in a search, so most evaluations find
+ * them here. Each entry holds the midgame and endgame scores (white ahead
+ * as positive) and the passed pawns of each side, for evaluation terms
+ * that also depend on the other pieces.
+ * <p>
+ * The table is always replaced on a collision and is not thread safe: each
+ * search thread has its own.
+ */
+public final class PawnTable {
+    /**
+     * The number of entries of the table of a {@link Search}
+     */
+    public static final int DEFAULT_ENTRIES = 1 << 14;
+
+    private static final int DOUBLED_MIDGAME = -10;
+    private static final int DOUBLED_ENDGAME = -20;
+    private static final int ISOLATED_MIDGAME = -10;
+    private static final int ISOLATED_ENDGAME = -15;
+    private static final int BACKWARD_MIDGAME = -8;
+    private static final int BACKWARD_ENDGAME = -10;
+    // by rank, from the pawn's side
+    private static final int[] PASSED_MIDGAME = {0, 5, 10, 15, 25, 40, 60, 0};
+    private static final int[] PASSED_ENDGAME = {0, 10, 20, 35, 60, 90, 130, 0};
+
+    // [color][square]: the squares ahead on the same file
+    private static final long[][] FRONT = new long[2][64];
+    // [color][square]: the squares ahead on the same and adjacent files
+    private static final long[][] PASSED = new long[2][64];
+    // [color][square]: the squares level or behind on the adjacent files
+    private static final long[][] SUPPORT = new long[2][64];
+    // [file]: the adjacent files
+    private static final long[] ADJACENT = new long[8];
+
+    static {
+        for (int file = 0; file < 8; file++) {
+            if (file > 0) ADJACENT[file] |= Bitboards.fileMask(file - 1);
+            if (file < 7) ADJACENT[file] |= Bitboards.fileMask(file + 1);
+        }
+        for (int sq = 0; sq < 64; sq++) {
+            int rank = sq >>> 3;
+            long file = Bitboards.fileMask(sq);
+            long adjacent = ADJACENT[sq & 7];
+            // the ranks above (white) and below (black) the square's
+            long above = rank == 7 ? 0 : -1L << (rank + 1) * 8;
+            long below = rank == 0 ? 0 : -1L >>> (8 - rank) * 8;
+            FRONT[Color.White.ordinal()][sq] = file & above;
+            FRONT[Color.Black.ordinal()][sq] = file & below;
+            PASSED[Color.White.ordinal()][sq] = (file | adjacent) & above;
+            PASSED[Color.Black.ordinal()][sq] = (file | adjacent) & below;
+            SUPPORT[Color.White.ordinal()][sq] = adjacent & ~above;
+            SUPPORT[Color.Black.ordinal()][sq] = adjacent & ~below;
+        }
+    }
+
+    private final long[] keys;
+    private final int[] midgame;
+    private final int[] endgame;
+    private final long[] whitePassed;
+    private final long[] blackPassed;
+    private final int mask;
+    private long probes;
+    private long hits;
+
+    /**
+     * @param entries the number of entries, a power of two
+     */
+    public PawnTable(int entries) {
+        if (entries < 1 || Integer.bitCount(entries) != 1)
+            throw new IllegalArgumentException("Entries must be a power of two: " + entries);
+
+        this.keys = new long[entries];
+        this.midgame = new int[entries];
+        this.endgame = new int[entries];
+        this.whitePassed = new long[entries];
+        this.blackPassed = new long[entries];
+        this.mask = entries - 1;
+    }
+
+    /**
+     * Find the entry of the board's pawns, evaluating them on a miss.
+     *
+     * @return the entry index, to read with {@link #midgame(int)},
+     * {@link #endgame(int)} and {@link #passed(int, Color)}
+     */
+    public int probe(@NotNull Board board) {
+        long key = board.pawnKey();
+        int index = (int) key & this.mask;
+        this.probes++;
+        // a zeroed entry is correct for key 0: no pawns, nothing to score
+        if (this.keys[index] == key) {
+            this.hits++;
+            return index;
+        }
+
+        this.keys[index] = key;
+        this.midgame[index] = 0;
+        this.endgame[index] = 0;
+        this.whitePassed[index] = evaluate(board, Color.White, index);
+        this.blackPassed[index] = evaluate(board, Color.Black, index);
+        return index;
+    }
+
+    public int midgame(int index) {
+        return this.midgame[index];
+    }
+
+    public int endgame(int index) {
+        return this.endgame[index];
+    }
+
+    /**
+     * @return the passed pawns of the color
+     */
+    public long passed(int index, @NotNull Color color) {
+        return color == Color.White ? this.whitePassed[index] : this.blackPassed[index];
+    }
+
+    /**
+     * @return the share of probes that found their entry since the
+     * counters were last reset, or 0 before any probe
+     */
+    public double hitRate() {
+        return this.probes == 0 ? 0 : (double) this.hits / this.probes;
+    }
+
+    public void resetCounters() {
+        this.probes = 0;
+        this.hits = 0;
+    }
+
+    public void clear() {
+        Arrays.fill(this.keys, 0L);
+        Arrays.fill(this.midgame, 0);
+        Arrays.fill(this.endgame, 0);
+        Arrays.fill(this.whitePassed, 0L);
+        Arrays.fill(this.blackPassed, 0L);
+        resetCounters();
+    }
+
+    /**
+     * Add the pawn terms of one side to the entry.
+     *
+     * @return the passed pawns of the side
+     */
+    private long evaluate(Board board, Color color, int index) {
+        int side = color.ordinal();
+        long own = board.pieces(PieceType.Pawn, color);
+        long enemy = board.pieces(PieceType.Pawn, color.opposite());
+        int midgame = 0;
+        int endgame = 0;
+        long passed = 0;
+
+        for (long pawns = own; pawns != 0; pawns &= pawns - 1) {
+            int sq = Bitboards.first(pawns);
+            int rank = color == Color.White ? sq >>> 3 : 7 - (sq >>> 3);
+            // only the rear pawn of a doubled pair counts as doubled
+            boolean doubled = (own & FRONT[side][sq]) != 0;
+            boolean isolated = (own & ADJACENT[sq & 7]) == 0;
+
+            if (doubled) {
+                midgame += DOUBLED_MIDGAME;
+                endgame += DOUBLED_ENDGAME;
+            }
+            if (isolated) {
+                midgame += ISOLATED_MIDGAME;
+                endgame += ISOLATED_ENDGAME;
+            }
+            if (!doubled && (enemy & PASSED[side][sq]) == 0) {
+                passed |= Bitboards.bit(sq);
+                midgame += PASSED_MIDGAME[rank];
+                endgame += PASSED_ENDGAME[rank];
+            } else if (!isolated && (own & SUPPORT[side][sq]) == 0) {
+                // no pawn can defend it, and it can't advance safely
+                int stop = color == Color.White ? sq + 8 : sq - 8;
+                if ((Attacks.pawn(color, stop) & enemy) != 0) {
+                    midgame += BACKWARD_MIDGAME;
+                    endgame += BACKWARD_ENDGAME;
+                }
+            }
+        }
+
+        int sign = color == Color.White ? 1 : -1;
+        this.midgame[index] += sign * midgame;
+        this.endgame[index] += sign * endgame;
+        return passed;
+    }
+}
@@ -0,0 +1,70 @@
+package core.engine;
+
+import core.ChessGame;
+import core.Color;
+import core.bitboard.Bitboards;
+import core.move.PackedMove;
+
+class PawnTableTest {
+
+    @org.junit.jupiter.api.Test
+    void testPawnKey() {
+        var position = new ChessGame().position();
+        long key = position.board().pawnKey();
+        assert key != 0;
+
+        // Nf3 leaves the pawns alone, e4 doesn't
+        long undo = position.makeMove(PackedMove.of(6, 21));
+        assert position.board().pawnKey() == key;
+        position.unmakeMove(PackedMove.of(6, 21), undo);
+        undo = position.makeMove(PackedMove.of(12, 28));
+        assert position.board().pawnKey() != key;
+        position.unmakeMove(PackedMove.of(12, 28), undo);
+        assert position.board().pawnKey() == key;
+
+        assert ChessGame.fromFen("4k3/8/8/8/8/8/8/4K3 w - - 0 1").board().pawnKey() == 0;
+    }
+
+    @org.junit.jupiter.api.Test
+    void testDoubledAndIsolated() {
+        // e3 is passed, e2 behind it is doubled; both are isolated
+        var board = ChessGame.fromFen("4k3/8/8/8/8/4P3/4P3/4K3 w - - 0 1").board();
+        var table = new PawnTable(16);
+        int entry = table.probe(board);
+        assert table.midgame(entry) == -10 - 2 * 10 + 10;
+        assert table.endgame(entry) == -20 - 2 * 15 + 20;
+        assert table.passed(entry, Color.White) == Bitboards.bit(20);
+    }
+
+    @org.junit.jupiter.api.Test
+    void testPassedAndBackward() {
+        var board = ChessGame.fromFen("4k3/8/8/3P4/8/8/p7/4K3 w - - 0 1").board();
+        var table = new PawnTable(16);
+        int entry = table.probe(board);
+        assert table.passed(entry, Color.White) == Bitboards.bit(35);
+        assert table.passed(entry, Color.Black) == Bitboards.bit(8);
+
+        // c4 is passed, d3 is backward (e5 guards d4), e5 is isolated
+        board = ChessGame.fromFen("4k3/8/8/4p3/2P1P3/3P4/8/4K3 w - - 0 1").board();
+        entry = table.probe(board);
+        assert table.midgame(entry) == 15 - 8 + 10;
+        assert table.endgame(entry) == 35 - 10 + 15;
+    }
+
+    @org.junit.jupiter.api.Test
+    void testHitRate() {
+        var board = new ChessGame().board();
+        var table = new PawnTable(16);
+        assert table.hitRate() == 0;
+        int entry = table.probe(board);
+        assert table.probe(board) == entry;
+        assert table.hitRate() == 0.5;
+        table.resetCounters();
+        assert table.hitRate() == 0;
+
+        var search = new Search(ChessGame.fromFen(
+                "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1"));
+        search.search(SearchLimits.depth(4));
+        assert search.pawnHitRate() > 0.5;
+    }
+}
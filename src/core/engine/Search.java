@@ -0,0 +1,456 @@
+package core.engine;
+
+import core.ChessGame;
+import core.MoveGenerator;
+import core.PieceType;
+import core.Position;
+import core.move.PackedMove;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.EnumSet;
+
+/**
+ * Iterative deepening negamax search with alpha-beta pruning.
+ * <p>
+ * The search runs on its own copy of the position and only uses packed
+ * moves, {@link Position#makeMove(int)}/{@link Position#unmakeMove(int, long)}
+ * and one move buffer per ply, so it allocates nothing per node.
+ * <p>
+ * Results are cached in a {@link TranspositionTable}: a deep enough entry
+ * ends the search of a node, and the best move of any entry is searched
+ * first (at the root, that is the best move of the previous iteration).
+ * The other moves are ordered by {@link MoveOrdering}.
+ * <p>
+ * At depth 0 a quiescence search goes on with captures and queen
+ * promotions only (and every evasion when in check) until the position is
+ * quiet, so a leaf isn't scored in the middle of an exchange. Captures
+ * that lose material by {@link StaticExchange static exchange} are not
+ * searched there.
+ * <p>
+ * The tree is cut down further by the {@link SearchFeature}s, each of
+ * which can be turned off to measure its effect on the node count.
+ * <p>
+ * Draws by the fifty-move rule and by repetition (of a position of the game
+ * or of the search path) score 0.
+ */
+public final class Search {
+    public static final int INFINITY = 32000;
+    /**
+     * The score of being mated now; mated in n plies scores
+     * {@code -MATE + n}
+     */
+    public static final int MATE = 31000;
+    static final int MAX_PLY = 128;
+    /**
+     * The transposition table size of {@link #Search(ChessGame)}
+     */
+    public static final int DEFAULT_HASH_MB = 16;
+
+    /**
+     * The least depth to try a null move at
+     */
+    private static final int NULL_MOVE_DEPTH = 3;
+    /**
+     * The least depth to reduce late moves at, and the number of moves
+     * searched at full depth before them
+     */
+    private static final int LMR_DEPTH = 3;
+    private static final int LMR_MOVES = 3;
+    /**
+     * The half width of the first aspiration window, in centipawns
+     */
+    private static final int ASPIRATION_WINDOW = 50;
+
+    private final Position position;
+    private final MoveGenerator generator;
+    private final TranspositionTable table;
+    private final MoveOrdering ordering;
+    private final PawnTable pawns;
+    private final int[][] moves;
+    private final EnumSet<SearchFeature> features;
+
+    /*
+     * Keys of the game positions, then of the search path: the position at
+     * ply p of the search is at rootIndex + p.
+     */
+    private final long[] keys;
+    private final int rootIndex;
+
+    private long nodes;
+    private long nodeLimit;
+    private volatile boolean stopped;
+    private int rootBestMove;
+    private int rootBestScore;
+    // the depth of the last iteration not cut short, 0 if none
+    private int completedDepth;
+
+    /**
+     * @param game the game to search the current position of (the game
+     *             itself is not modified)
+     */
+    public Search(@NotNull ChessGame game) {
+        this(game, new TranspositionTable(DEFAULT_HASH_MB));
+    }
+
+    /**
+     * @param game  the game to search the current position of (the game
+     *              itself is not modified)
+     * @param table the transposition table to use, which may be kept
+     *              between searches
+     */
+    public Search(@NotNull ChessGame game, @NotNull TranspositionTable table) {
+        this(game.position(), game.positionKeys(), table);
+    }
+
+    /**
+     * @param position the position to search, owned by the search
+     * @param history  the keys of the game positions, ending with the
+     *                 position's own
+     */
+    Search(@NotNull Position position, long @NotNull [] history,
+           @NotNull TranspositionTable table) {
+        this.position = position;
+        this.generator = new MoveGenerator(position);
+        this.table = table;
+        this.ordering = new MoveOrdering();
+        this.pawns = new PawnTable(PawnTable.DEFAULT_ENTRIES);
+        this.features = EnumSet.allOf(SearchFeature.class);
+        this.moves = new int[MAX_PLY][MoveGenerator.MAX_MOVES];
+        this.keys = new long[history.length + MAX_PLY];
+        System.arraycopy(history, 0, this.keys, 0, history.length);
+        this.rootIndex = history.length - 1;
+        this.keys[this.rootIndex] = position.key();
+    }
+
+    /**
+     * Search the position, deepening one ply at a time until a limit is
+     * reached or {@link #stop()} is called.
+     *
+     * @param limits the depth and node limits
+     * @return the result of the last completed iteration (the first
+     * iteration is reported even if it was cut short: the root always picks
+     * a move, scored by the static evaluation until one is searched)
+     */
+    public @NotNull SearchResult search(@NotNull SearchLimits limits) {
+        this.table.newSearch();
+        clearStop();
+        return iterate(limits, 1);
+    }
+
+    /**
+     * Run the iterations without starting a new table generation or
+     * clearing a {@link #stop()} (a {@link ParallelSearch} does both once
+     * for all its threads, before starting any, so that no stop is lost).
+     *
+     * @param firstDepth the depth of the first iteration
+     */
+    @NotNull SearchResult iterate(@NotNull SearchLimits limits, int firstDepth) {
+        long start = System.nanoTime();
+        this.nodes = 0;
+        this.nodeLimit = limits.nodes();
+        this.rootBestMove = PackedMove.NONE;
+        this.completedDepth = 0;
+        // until a root move is scored
+        this.rootBestScore = Evaluation.evaluate(this.position, this.pawns);
+        this.ordering.newSearch();
+        this.pawns.resetCounters();
+
+        SearchResult result = null;
+        for (int depth = firstDepth; depth <= limits.depth(); depth++) {
+            int score = result != null && this.features.contains(SearchFeature.ASPIRATION)
+                    ? aspirate(depth, result.score())
+                    : negamax(depth, 0, -INFINITY, INFINITY, true);
+            if (this.stopped && result != null) break;
+
+            if (!this.stopped) {
+                this.rootBestScore = score;
+                this.completedDepth = depth;
+            }
+            result = new SearchResult(this.rootBestMove, this.rootBestScore, depth,
+                    this.nodes, System.nanoTime() - start);
+
+            // no legal move, or a forced mate found: deeper won't change it
+            if (this.stopped || this.rootBestMove == PackedMove.NONE
+                    || Math.abs(score) >= MATE - depth) break;
+        }
+        return result;
+    }
+
+    /**
+     * Search the root with a window around the previous score, widening the
+     * side it falls out of until the score is inside
+     */
+    private int aspirate(int depth, int previous) {
+        int delta = ASPIRATION_WINDOW;
+        int alpha = Math.max(previous - delta, -INFINITY);
+        int beta = Math.min(previous + delta, INFINITY);
+        while (true) {
+            int bestMove = this.rootBestMove;
+            int score = negamax(depth, 0, alpha, beta, true);
+            if (this.stopped) return score;
+
+            delta *= 2;
+            if (score <= alpha) {
+                // every move failed low: none is known to be better
+                this.rootBestMove = bestMove;
+                alpha = Math.max(score - delta, -INFINITY);
+            } else if (score >= beta) {
+                beta = Math.min(score + delta, INFINITY);
+            } else {
+                return score;
+            }
+        }
+    }
+
+    /**
+     * Turn a pruning or reduction technique on or off; not while searching.
+     */
+    public void setEnabled(@NotNull SearchFeature feature, boolean enabled) {
+        if (enabled) this.features.add(feature);
+        else this.features.remove(feature);
+    }
+
+    public boolean isEnabled(@NotNull SearchFeature feature) {
+        return this.features.contains(feature);
+    }
+
+    /**
+     * Stop the search as soon as possible; safe to call from another thread
+     */
+    public void stop() {
+        this.stopped = true;
+    }
+
+    /**
+     * Undo a {@link #stop()}, before starting a search
+     */
+    void clearStop() {
+        this.stopped = false;
+    }
+
+    /**
+     * @return the number of nodes visited by the current or last search
+     */
+    public long nodes() {
+        return this.nodes;
+    }
+
+    /**
+     * @return the depth of the last iteration of the current or last search
+     * that was not cut short, or 0 if there is none
+     */
+    int completedDepth() {
+        return this.completedDepth;
+    }
+
+    /**
+     * @return the share of the beta cutoffs of the current or last search
+     * that happened on the first move searched: the closer to 1, the better
+     * the move ordering
+     */
+    public double firstMoveCutoffRate() {
+        return this.ordering.firstMoveCutoffRate();
+    }
+
+    /**
+     * @return the share of the evaluations of the current or last search
+     * that found their pawn structure in the {@link PawnTable}
+     */
+    public double pawnHitRate() {
+        return this.pawns.hitRate();
+    }
+
+    /**
+     * @param allowNull if a null move may be tried (not right after one)
+     */
+    private int negamax(int depth, int ply, int alpha, int beta, boolean allowNull) {
+        if (this.nodes < this.nodeLimit) this.nodes++;
+        else this.stopped = true;
+        // the root still picks its first move, so a stopped search has one
+        if (this.stopped && ply > 0) return 0;
+
+        if (ply > 0 && isDraw(ply)) return 0;
+        if (ply == MAX_PLY - 1) return Evaluation.evaluate(this.position, this.pawns);
+        if (depth <= 0) return quiescence(ply, alpha, beta);
+        boolean pvNode = beta - alpha > 1;
+
+        long key = this.position.key();
+        long entry = this.table.probe(key);
+        int hashMove = PackedMove.NONE;
+        if (entry != 0) {
+            hashMove = TranspositionTable.move(entry);
+            if (ply > 0 && TranspositionTable.depth(entry) >= depth) {
+                int score = scoreFromTable(TranspositionTable.score(entry), ply);
+                int bound = TranspositionTable.bound(entry);
+                if (bound == TranspositionTable.EXACT
+                        || bound == TranspositionTable.LOWER && score >= beta
+                        || bound == TranspositionTable.UPPER && score <= alpha)
+                    return score;
+            }
+        }
+        if (ply == 0 && this.rootBestMove != PackedMove.NONE) hashMove = this.rootBestMove;
+
+        this.generator.refresh();
+        boolean inCheck = this.generator.checkers() != 0;
+
+        if (allowNull && !pvNode && !inCheck && depth >= NULL_MOVE_DEPTH
+                && this.features.contains(SearchFeature.NULL_MOVE)
+                && hasPieces() && Evaluation.evaluate(this.position, this.pawns) >= beta) {
+            int reduction = depth > 6 ? 3 : 2;
+            long undo = this.position.makeNullMove();
+            this.keys[this.rootIndex + ply + 1] = this.position.key();
+            int score = -negamax(depth - 1 - reduction, ply + 1, -beta, -beta + 1, false);
+            this.position.unmakeNullMove(undo);
+            if (this.stopped) return 0;
+            // a mate found after passing the turn is not a real one
+            if (score >= beta) return score >= MATE - MAX_PLY ? beta : score;
+            this.generator.refresh();
+        }
+
+        var buffer = this.moves[ply];
+        int count = this.generator.generate(buffer);
+        if (count == 0) return inCheck ? -MATE + ply : 0;
+
+        this.ordering.score(this.position, buffer, count, ply, hashMove);
+
+        int originalAlpha = alpha;
+        int best = -INFINITY;
+        int bestMove = PackedMove.NONE;
+        for (int i = 0; i < count; i++) {
+            int move = this.ordering.next(buffer, count, i, ply);
+            // so a cut short first iteration still has a move
+            if (ply == 0 && this.rootBestMove == PackedMove.NONE) this.rootBestMove = move;
+
+            boolean quiet = MoveOrdering.isQuiet(this.position, move);
+            long undo = this.position.makeMove(move);
+            this.keys[this.rootIndex + ply + 1] = this.position.key();
+            int score;
+            if (i == 0) {
+                score = -negamax(depth - 1, ply + 1, -beta, -alpha, true);
+            } else {
+                int reduction = 0;
+                if (i >= LMR_MOVES && depth >= LMR_DEPTH && quiet && !inCheck
+                        && this.features.contains(SearchFeature.LMR) && !this.position.isInCheck())
+                    reduction = i >= 4 * LMR_MOVES && depth > LMR_DEPTH ? 2 : 1;
+                // with PVS, only prove the move doesn't beat alpha at first
+                int window = this.features.contains(SearchFeature.PVS) ? alpha + 1 : beta;
+
+                score = -negamax(depth - 1 - reduction, ply + 1, -window, -alpha, true);
+                if (reduction > 0 && score > alpha)
+                    score = -negamax(depth - 1, ply + 1, -window, -alpha, true);
+                if (window != beta && score > alpha && score < beta)
+                    score = -negamax(depth - 1, ply + 1, -beta, -alpha, true);
+            }
+            this.position.unmakeMove(move, undo);
+            if (this.stopped) return 0;
+
+            if (score > best) {
+                best = score;
+                bestMove = move;
+                if (ply == 0) {
+                    this.rootBestMove = move;
+                    this.rootBestScore = score;
+                }
+                if (score > alpha) {
+                    alpha = score;
+                    if (alpha >= beta) {
+                        this.ordering.cutoff(this.position, move, ply, depth, i);
+                        break;
+                    }
+                }
+            }
+        }
+
+        int bound = best >= beta ? TranspositionTable.LOWER
+                : best > originalAlpha ? TranspositionTable.EXACT : TranspositionTable.UPPER;
+        this.table.store(key, bestMove, scoreToTable(best, ply), depth, bound);
+        return best;
+    }
+
+    private int quiescence(int ply, int alpha, int beta) {
+        if (this.nodes < this.nodeLimit) this.nodes++;
+        else this.stopped = true;
+        if (this.stopped) return 0;
+        if (ply == MAX_PLY - 1) return Evaluation.evaluate(this.position, this.pawns);
+
+        this.generator.refresh();
+        boolean inCheck = this.generator.checkers() != 0;
+        int best = -INFINITY;
+        if (!inCheck) {
+            // standing pat: the side to move can decline every capture, if
+            // it has a move to play instead
+            best = Evaluation.evaluate(this.position, this.pawns);
+            if (best >= beta) return this.generator.hasAnyLegalMove() ? best : 0;
+            if (best > alpha) alpha = best;
+        }
+
+        var buffer = this.moves[ply];
+        int count = this.generator.generate(buffer);
+        if (count == 0) return inCheck ? -MATE + ply : 0;
+
+        this.ordering.score(this.position, buffer, count, ply, PackedMove.NONE);
+        for (int i = 0; i < count; i++) {
+            int move = this.ordering.next(buffer, count, i, ply);
+            if (!inCheck && (MoveOrdering.isQuiet(this.position, move)
+                    || this.ordering.staticExchange(this.position, move) < 0)) continue;
+
+            long undo = this.position.makeMove(move);
+            int score = -quiescence(ply + 1, -beta, -alpha);
+            this.position.unmakeMove(move, undo);
+            if (this.stopped) return 0;
+
+            if (score > best) {
+                best = score;
+                if (score > alpha) {
+                    alpha = score;
+                    if (alpha >= beta) break;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Mate scores are stored as distance from the stored position rather
+     * than from the root, since the position can be reached at any ply
+     */
+    private static int scoreToTable(int score, int ply) {
+        if (score >= MATE - MAX_PLY) return score + ply;
+        if (score <= -MATE + MAX_PLY) return score - ply;
+        return score;
+    }
+
+    private static int scoreFromTable(int score, int ply) {
+        if (score >= MATE - MAX_PLY) return score - ply;
+        if (score <= -MATE + MAX_PLY) return score + ply;
+        return score;
+    }
+
+    /**
+     * @return if the side to move has a piece besides its king and pawns,
+     * which makes zugzwang unlikely enough to try a null move
+     */
+    private boolean hasPieces() {
+        var board = this.position.board();
+        var color = this.position.toMove();
+        return board.count(color) - board.count(PieceType.Pawn, color) > 1;
+    }
+
+    /**
+     * @return if the position at the given ply is drawn by the fifty-move
+     * rule or repeats an earlier position
+     */
+    private boolean isDraw(int ply) {
+        int halfmoveClock = this.position.halfmoveClock();
+        if (halfmoveClock >= 100) return true;
+
+        // only positions since the last capture or pawn move can repeat
+        int current = this.rootIndex + ply;
+        long key = this.keys[current];
+        int oldest = Math.max(0, current - halfmoveClock);
+        for (int i = current - 2; i >= oldest; i -= 2) {
+            if (this.keys[i] == key) return true;
+        }
+        return false;
+    }
+}
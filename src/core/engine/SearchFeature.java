@@ -0,0 +1,31 @@
+package core.engine;
+
+/**
+ * The pruning and reduction techniques of a {@link Search}, each of which
+ * can be turned off (see {@link Search#setEnabled}) to measure what it
+ * saves. All are enabled by default.
+ */
+public enum SearchFeature {
+    /**
+     * Principal variation search: after the first move, prove each move is
+     * no better with a zero-width window, and search it again with the full
+     * window only if it is
+     */
+    PVS,
+    /**
+     * Null move pruning: if passing the turn still fails high on a shallower
+     * search, so would any real move. Not tried in check, or with only
+     * pawns left, where passing may be the best move (zugzwang).
+     */
+    NULL_MOVE,
+    /**
+     * Late move reductions: quiet moves late in the move order are searched
+     * shallower, and again at full depth only if they raise alpha
+     */
+    LMR,
+    /**
+     * Aspiration windows: search the root with a narrow window around the
+     * previous iteration's score, widening it if the score falls outside
+     */
+    ASPIRATION
+}
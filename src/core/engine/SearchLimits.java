@@ -0,0 +1,27 @@
+package core.engine;
+
+/**
+ * When to stop a search: after completing a depth, or after visiting a
+ * number of nodes (whichever comes first).
+ *
+ * @param depth the maximum depth in plies (1..{@value #MAX_DEPTH})
+ * @param nodes the maximum number of nodes
+ */
+public record SearchLimits(int depth, long nodes) {
+    public static final int MAX_DEPTH = 64;
+
+    public SearchLimits {
+        if (depth < 1 || depth > MAX_DEPTH)
+            throw new IllegalArgumentException("Depth out of 1.." + MAX_DEPTH + ": " + depth);
+        if (nodes < 1)
+            throw new IllegalArgumentException("Node limit must be positive: " + nodes);
+    }
+
+    public static SearchLimits depth(int depth) {
+        return new SearchLimits(depth, Long.MAX_VALUE);
+    }
+
+    public static SearchLimits nodes(long nodes) {
+        return new SearchLimits(MAX_DEPTH, nodes);
+    }
+}
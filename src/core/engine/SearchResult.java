@@ -0,0 +1,56 @@
+package core.engine;
+
+import core.move.Move;
+import core.move.PackedMove;
+
+/**
+ * The outcome of the last completed iteration of a search.
+ *
+ * @param move  the best {@link PackedMove packed move}, or
+ *              {@link PackedMove#NONE} if there is no legal move
+ * @param score the score in centipawns for the side to move, or a mate
+ *              score (see {@link #isMate()})
+ * @param depth the depth reached
+ * @param nodes the number of nodes visited
+ * @param nanos the elapsed time in nanoseconds
+ */
+public record SearchResult(int move, int score, int depth, long nodes, long nanos) {
+    /**
+     * @return the best move, or null if there is no legal move
+     */
+    public Move bestMove() {
+        return this.move == PackedMove.NONE ? null : PackedMove.toMove(this.move);
+    }
+
+    /**
+     * @return if the score is a forced mate (for either side)
+     */
+    public boolean isMate() {
+        return Math.abs(this.score) >= Search.MATE - Search.MAX_PLY;
+    }
+
+    /**
+     * @return the number of moves (not plies) to mate, negative if the side
+     * to move gets mated, or 0 if the score is not a mate
+     */
+    public int mateIn() {
+        if (!isMate()) return 0;
+        int plies = Search.MATE - Math.abs(this.score);
+        return this.score > 0 ? (plies + 1) / 2 : -(plies / 2);
+    }
+
+    /**
+     * @return the number of nodes visited per second
+     */
+    public double nps() {
+        return this.nanos == 0 ? 0 : this.nodes * 1e9 / this.nanos;
+    }
+
+    @Override
+    public String toString() {
+        var score = isMate() ? "mate " + mateIn() : "cp " + this.score;
+        var move = this.move == PackedMove.NONE ? "(none)" : PackedMove.toString(this.move);
+        return String.format("depth %d score %s nodes %d nps %.0f move %s",
+                this.depth, score, this.nodes, nps(), move);
+    }
+}
@@ -0,0 +1,248 @@
+package core.engine;
+
+import core.ChessGame;
+import core.MoveGenerator;
+import core.Position;
+import core.move.Move;
+import core.move.PackedMove;
+import core.square.Square;
+
+import static core.square.File.*;
+import static core.square.Rank.*;
+
+class SearchTest {
+
+    @org.junit.jupiter.api.Test
+    void testMateInOne() {
+        var game = ChessGame.fromFen("6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1");
+        var result = new Search(game).search(SearchLimits.depth(4));
+        assert result.bestMove().equals(new Move(new Square(A, _1), new Square(A, _8)));
+        assert result.isMate() && result.mateIn() == 1;
+        // the quiescence search sees there is no evasion, no need to go on
+        assert result.depth() == 1;
+    }
+
+    @org.junit.jupiter.api.Test
+    void testWinsMaterial() {
+        var game = ChessGame.fromFen("4k3/8/8/3q4/8/8/8/3RK3 w - - 0 1");
+        var result = new Search(game).search(SearchLimits.depth(3));
+        assert result.bestMove().equals(new Move(new Square(D, _1), new Square(D, _5)));
+        assert result.score() > 0;
+    }
+
+    @org.junit.jupiter.api.Test
+    void testNoLegalMove() {
+        // stalemate
+        var game = ChessGame.fromFen("7k/5Q2/6K1/8/8/8/8/8 b - - 0 1");
+        var result = new Search(game).search(SearchLimits.depth(3));
+        assert result.move() == PackedMove.NONE && result.bestMove() == null;
+        assert result.score() == 0;
+    }
+
+    @org.junit.jupiter.api.Test
+    void testNodeLimit() {
+        var game = new ChessGame();
+        var result = new Search(game).search(SearchLimits.nodes(5000));
+        assert result.nodes() <= 5000;
+        assert result.bestMove() != null && game.isLegalMove(result.bestMove());
+
+        // even a tiny budget gives a legal move
+        result = new Search(game).search(SearchLimits.nodes(1));
+        assert result.nodes() == 1;
+        assert result.bestMove() != null && game.isLegalMove(result.bestMove());
+
+        // and no score of an earlier search of the same instance
+        var search = new Search(ChessGame.fromFen("6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1"));
+        assert search.search(SearchLimits.depth(2)).isMate();
+        result = search.search(SearchLimits.nodes(1));
+        assert result.bestMove() != null && !result.isMate();
+    }
+
+    @org.junit.jupiter.api.Test
+    void testRepetitionIsDraw() {
+        // a rook down, white saves the game with the perpetual check
+        // Qh5+ Kg8 Qe8+ Kh7 Qh5+, which black can't block
+        var game = ChessGame.fromFen("8/6pk/5p2/8/8/8/qr3PPP/3Q2K1 w - - 0 1");
+        var result = new Search(game).search(SearchLimits.depth(6));
+        assert result.bestMove().equals(new Move(new Square(D, _1), new Square(H, _5)));
+        assert result.score() == 0;
+    }
+
+    @org.junit.jupiter.api.Test
+    void testRepetitionOfGamePosition() {
+        // a queen down, black's only way out is Kh8, back to a position
+        // the game has already seen
+        var game = ChessGame.fromFen("6k1/5ppp/8/8/8/8/5PPP/3Q2K1 b - - 0 1");
+        game.move(new Move(new Square(G, _8), new Square(H, _8)));
+        game.move(new Move(new Square(D, _1), new Square(D, _2)));
+        game.move(new Move(new Square(H, _8), new Square(G, _8)));
+        game.move(new Move(new Square(D, _2), new Square(D, _1)));
+
+        var result = new Search(game).search(SearchLimits.depth(3));
+        assert result.bestMove().equals(new Move(new Square(G, _8), new Square(H, _8)));
+        assert result.score() == 0;
+    }
+
+    @org.junit.jupiter.api.Test
+    void testTranspositionTable() {
+        var table = new TranspositionTable(1);
+        assert table.capacity() == 1024 * 1024 / 16;
+
+        long key = 0x123456789ABCDEFL;
+        int move = PackedMove.of(12, 28);
+        table.store(key, move, -250, 7, TranspositionTable.LOWER);
+        long entry = table.probe(key);
+        assert TranspositionTable.move(entry) == move;
+        assert TranspositionTable.score(entry) == -250;
+        assert TranspositionTable.depth(entry) == 7;
+        assert TranspositionTable.bound(entry) == TranspositionTable.LOWER;
+
+        // same bucket, different position
+        assert table.probe(key ^ (1L << 60)) == 0;
+
+        // a shallower bound of the same search is dropped
+        table.store(key, PackedMove.of(12, 20), 10, 2, TranspositionTable.UPPER);
+        entry = table.probe(key);
+        assert TranspositionTable.move(entry) == move;
+        assert TranspositionTable.depth(entry) == 7;
+        assert TranspositionTable.bound(entry) == TranspositionTable.LOWER;
+
+        // but an exact score replaces it, keeping the known best move if
+        // it has none
+        table.store(key, PackedMove.NONE, 30, 3, TranspositionTable.EXACT);
+        entry = table.probe(key);
+        assert TranspositionTable.move(entry) == move;
+        assert TranspositionTable.score(entry) == 30;
+        assert TranspositionTable.depth(entry) == 3;
+
+        // and so does any result of a later search
+        table.newSearch();
+        table.store(key, PackedMove.NONE, 10, 1, TranspositionTable.UPPER);
+        entry = table.probe(key);
+        assert TranspositionTable.depth(entry) == 1;
+        assert TranspositionTable.bound(entry) == TranspositionTable.UPPER;
+    }
+
+    @org.junit.jupiter.api.Test
+    void testTableReuse() {
+        var game = ChessGame.fromFen("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1");
+        var table = new TranspositionTable(4);
+        var first = new Search(game, table).search(SearchLimits.depth(4));
+        var second = new Search(game, table).search(SearchLimits.depth(4));
+
+        // the second search starts from the results of the first
+        assert second.nodes() < first.nodes();
+        assert second.score() == first.score();
+    }
+
+    @org.junit.jupiter.api.Test
+    void testParallelSearch() {
+        var game = ChessGame.fromFen("4k3/8/8/3q4/8/8/8/3RK3 w - - 0 1");
+        var search = new ParallelSearch(game, 3);
+        assert search.threads() == 3;
+        var result = search.search(SearchLimits.depth(4));
+        assert result.bestMove().equals(new Move(new Square(D, _1), new Square(D, _5)));
+        assert result.depth() >= 4;
+
+        game = ChessGame.fromFen("6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1");
+        result = new ParallelSearch(game, 2).search(SearchLimits.depth(4));
+        assert result.isMate() && result.mateIn() == 1;
+
+        // one thread is the plain search
+        result = new ParallelSearch(new ChessGame(), 1).search(SearchLimits.depth(3));
+        var single = new Search(new ChessGame()).search(SearchLimits.depth(3));
+        assert result.nodes() == single.nodes() && result.move() == single.move();
+    }
+
+    @org.junit.jupiter.api.Test
+    void testQuiescenceStalemate() {
+        // Qxc7 takes the rook as well as Kxc7, but stalemates: the quiescence
+        // search must not let black stand pat without a move
+        var game = ChessGame.fromFen("k7/2r5/1K6/8/8/8/8/2Q5 w - - 0 1");
+        var result = new Search(game).search(SearchLimits.depth(1));
+        assert result.bestMove().equals(new Move(new Square(B, _6), new Square(C, _7)));
+        assert result.score() > 500;
+    }
+
+    @org.junit.jupiter.api.Test
+    void testQuiescence() {
+        // at depth 1 Qxd5 looks like it wins a knight, until the pawn
+        // recaptures
+        var game = ChessGame.fromFen("4k3/8/4p3/3n4/8/8/8/3QK3 w - - 0 1");
+        var result = new Search(game).search(SearchLimits.depth(1));
+        assert !result.bestMove().equals(new Move(new Square(D, _1), new Square(D, _5)));
+        // the queen for a knight and pawn (give or take the piece-square
+        // values), instead of a whole knight more
+        assert Math.abs(result.score() - 300) < 100;
+    }
+
+    @org.junit.jupiter.api.Test
+    void testFeatures() {
+        var kiwipete = ChessGame.fromFen("r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1");
+        var search = new Search(kiwipete);
+        for (var feature : SearchFeature.values()) {
+            assert search.isEnabled(feature);
+        }
+        long pruned = search.search(SearchLimits.depth(5)).nodes();
+
+        for (var feature : SearchFeature.values()) {
+            search.setEnabled(feature, false);
+            assert !search.isEnabled(feature);
+        }
+        assert search.search(SearchLimits.depth(5)).nodes() > pruned;
+
+        // each feature on its own still finds the tactics
+        for (var feature : SearchFeature.values()) {
+            var game = ChessGame.fromFen("4k3/8/8/3q4/8/8/8/3RK3 w - - 0 1");
+            search = new Search(game);
+            for (var other : SearchFeature.values()) {
+                search.setEnabled(other, other == feature);
+            }
+            var result = search.search(SearchLimits.depth(5));
+            assert result.bestMove().equals(new Move(new Square(D, _1), new Square(D, _5)));
+
+            game = ChessGame.fromFen("6k1/5ppp/8/8/8/8/8/R5K1 w - - 0 1");
+            search = new Search(game);
+            search.setEnabled(feature, false);
+            assert search.search(SearchLimits.depth(4)).mateIn() == 1;
+        }
+    }
+
+    @org.junit.jupiter.api.Test
+    void testEvaluation() {
+        // symmetric
+        assert Evaluation.evaluate(new ChessGame().position()) == 0;
+
+        // a centralized knight is worth more than one on the rim
+        var center = ChessGame.fromFen("4k3/8/8/8/3N4/8/8/4K3 w - - 0 1").position();
+        var rim = ChessGame.fromFen("4k3/8/8/8/N7/8/8/4K3 w - - 0 1").position();
+        assert Evaluation.evaluate(center) > Evaluation.evaluate(rim);
+        assert Evaluation.evaluate(rim) > 200;
+
+        // from the side to move's point of view
+        var black = ChessGame.fromFen("4k3/8/8/8/3N4/8/8/4K3 b - - 0 1").position();
+        assert Evaluation.evaluate(black) == -Evaluation.evaluate(center);
+
+        // in the endgame the king belongs in the center
+        var central = ChessGame.fromFen("8/8/8/4k3/8/8/8/K7 w - - 0 1").position();
+        assert Evaluation.evaluate(central) < 0;
+    }
+
+    @org.junit.jupiter.api.Test
+    void testIncrementalEvaluation() {
+        // the running totals match a position set up from scratch after
+        // every move and undo, promotions and castles included
+        var position = ChessGame.fromFen("r3k2r/pPppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1").position();
+        var moves = new int[MoveGenerator.MAX_MOVES];
+        int count = new MoveGenerator(position).generate(moves);
+        int before = Evaluation.evaluate(position);
+        for (int i = 0; i < count; i++) {
+            long undo = position.makeMove(moves[i]);
+            var fresh = Position.fromFen(position.toFen());
+            assert Evaluation.evaluate(position) == Evaluation.evaluate(fresh);
+            assert position.board().phase() == fresh.board().phase();
+            position.unmakeMove(moves[i], undo);
+            assert Evaluation.evaluate(position) == before;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package core.engine;
+
+import core.ChessGame;
+import core.Color;
+import core.Piece;
+import core.PieceType;
+import core.Position;
+import core.bitboard.Bitboards;
+import core.move.Move;
+import core.move.PackedMove;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Static exchange evaluation (SEE): the material outcome of a capture once
+ * both sides have recaptured on the target square for as long as it pays,
+ * always with their least valuable attacker.
+ * <p>
+ * Only the target square is looked at: pins, checks and threats elsewhere
+ * are ignored, but sliders lined up behind an attacker (x-rays) join the
+ * exchange once it has moved, and a king only recaptures if the square is
+ * no longer attacked.
+ */
+public final class StaticExchange {
+    private static final PieceType[] LEAST_VALUABLE_FIRST = {
+            PieceType.Pawn, PieceType.Knight, PieceType.Bishop,
+            PieceType.Rook, PieceType.Queen, PieceType.King
+    };
+
+    /**
+     * More captures than there are pieces on the board
+     */
+    static final int MAX_EXCHANGE = 32;
+
+    private StaticExchange() {
+    }
+
+    /**
+     * @param game a game
+     * @param move a legal move in the current position of the game (the
+     *             promotion defaults to a queen)
+     * @return the material won by the move in centipawns (negative if it
+     * loses material), or 0 if it is not a capture and the piece can't be
+     * taken on its target square for profit
+     */
+    public static int evaluate(@NotNull ChessGame game, @NotNull Move move) {
+        var position = game.position();
+        return evaluate(position, position.pack(move));
+    }
+
+    /**
+     * @param position a position
+     * @param move     a legal {@link PackedMove packed move} of the position
+     * @return the material won by the move in centipawns, as for
+     * {@link #evaluate(ChessGame, Move)}
+     */
+    public static int evaluate(@NotNull Position position, int move) {
+        return evaluate(position, move, new int[MAX_EXCHANGE]);
+    }
+
+    /**
+     * @param gain a scratch buffer of at least {@value #MAX_EXCHANGE}
+     *             entries, so a search can evaluate without allocating
+     */
+    static int evaluate(@NotNull Position position, int move, int[] gain) {
+        var board = position.board();
+        int from = PackedMove.from(move);
+        int to = PackedMove.to(move);
+        var mover = board.pieceAt(from);
+        var captured = board.pieceAt(to);
+
+        // gain[d]: what the side making the d-th capture wins if the
+        // exchange stopped right after it
+        int depth = 0;
+        long occupied = board.occupied() ^ Bitboards.bit(from);
+        int onSquare = value(mover.type());
+
+        gain[0] = captured == null ? 0 : value(captured.type());
+        switch (PackedMove.flag(move)) {
+            case PackedMove.EN_PASSANT -> {
+                gain[0] = value(PieceType.Pawn);
+                occupied ^= Bitboards.bit((from & ~7) | (to & 7));
+            }
+            case PackedMove.PROMOTION -> {
+                onSquare = value(PackedMove.promotion(move));
+                gain[0] += onSquare - value(PieceType.Pawn);
+            }
+            default -> {
+            }
+        }
+
+        var side = mover.color().opposite();
+        while (depth < MAX_EXCHANGE - 1) {
+            long attackers = board.attackersTo(to, side, occupied) & occupied;
+            if (attackers == 0) break;
+
+            var type = PieceType.King;
+            long attacker = 0;
+            for (var candidate : LEAST_VALUABLE_FIRST) {
+                attacker = attackers & board.pieces(candidate, side);
+                if (attacker != 0) {
+                    type = candidate;
+                    break;
+                }
+            }
+            // the king can't capture into an attacked square
+            if (type == PieceType.King
+                    && (board.attackersTo(to, side.opposite(), occupied) & occupied) != 0) break;
+
+            // this capture loses even if the exchange stopped after it, and
+            // not capturing loses too: the previous capture's gain stands
+            if (Math.max(-gain[depth], onSquare - gain[depth]) < 0) break;
+            depth++;
+            gain[depth] = onSquare - gain[depth - 1];
+
+            onSquare = value(type);
+            occupied ^= Bitboards.bit(Bitboards.first(attacker));
+            side = side.opposite();
+        }
+
+        // each side may stand pat instead of recapturing
+        while (depth > 0) {
+            gain[depth - 1] = -Math.max(-gain[depth - 1], gain[depth]);
+            depth--;
+        }
+        return gain[0];
+    }
+
+    private static int value(PieceType type) {
+        return Piece.of(type, Color.White).value() * 100;
+    }
+}
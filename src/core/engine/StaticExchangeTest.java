@@ -0,0 +1,65 @@
+package core.engine;
+
+import core.ChessGame;
+import core.move.Move;
+import core.square.Square;
+
+import static core.square.File.*;
+import static core.square.Rank.*;
+
+class StaticExchangeTest {
+
+    private static int see(String fen, Square from, Square to) {
+        return StaticExchange.evaluate(ChessGame.fromFen(fen), new Move(from, to));
+    }
+
+    @org.junit.jupiter.api.Test
+    void testUndefended() {
+        // Rxe5 wins the pawn
+        assert see("1k1r4/1pp4p/p7/4p3/8/P5P1/1PP4P/2K1R3 w - - 0 1",
+                new Square(E, _1), new Square(E, _5)) == 100;
+    }
+
+    @org.junit.jupiter.api.Test
+    void testXRay() {
+        // Nxe5 wins a pawn for a knight: white's queen on e1 joins in
+        // behind the rook on e2 once it has recaptured, but black has the
+        // knight on d7, the bishop on f6 and the queen on h8 behind it
+        assert see("1k1r3q/1ppn3p/p4b2/4p3/8/P2N2P1/1PP1R1BP/2K1Q3 w - - 0 1",
+                new Square(D, _3), new Square(E, _5)) == -200;
+    }
+
+    @org.junit.jupiter.api.Test
+    void testStandPat() {
+        // Qxd5 is defended by the pawn: the queen is lost for a knight
+        assert see("4k3/8/4p3/3n4/8/8/8/3QK3 w - - 0 1",
+                new Square(D, _1), new Square(D, _5)) == 300 - 700;
+        // a quiet move to an attacked square loses the piece
+        assert see("4k3/8/4p3/8/8/8/8/3QK3 w - - 0 1",
+                new Square(D, _1), new Square(D, _5)) == -700;
+        // ...but not if it is not attacked
+        assert see("4k3/8/4p3/8/8/8/8/3QK3 w - - 0 1",
+                new Square(D, _1), new Square(D, _4)) == 0;
+    }
+
+    @org.junit.jupiter.api.Test
+    void testKingRecapture() {
+        // the king retakes the rook...
+        assert see("4r1k1/8/8/8/8/8/4N3/4K3 b - - 0 1",
+                new Square(E, _8), new Square(E, _2)) == 300 - 500;
+        // ...but not while the rook behind it guards e2
+        assert see("4r1k1/4r3/8/8/8/8/4N3/4K3 b - - 0 1",
+                new Square(E, _7), new Square(E, _2)) == 300;
+        assert see("6k1/8/8/8/8/8/4p3/4K3 w - - 0 1",
+                new Square(E, _1), new Square(E, _2)) == 100;
+    }
+
+    @org.junit.jupiter.api.Test
+    void testEnPassantAndPromotion() {
+        assert see("4k3/8/8/3pP3/8/8/8/4K3 w - d6 0 1",
+                new Square(E, _5), new Square(D, _6)) == 100;
+        // promoting where the rook takes the queen right away
+        assert see("r3k3/1P6/8/8/8/8/8/4K3 w - - 0 1",
+                new Square(B, _7), new Square(B, _8)) == 600 - 700;
+    }
+}
@@ -0,0 +1,188 @@
+package core.engine;
+
+import core.move.PackedMove;
+
+import java.util.Arrays;
+
+/**
+ * Fixed size hash table of search results, shared by any number of search
+ * threads without locks.
+ * <p>
+ * An entry is two {@code long}s: the data (best move, score, depth, bound
+ * and age packed together) and the position key XOR-ed with the data. A
+ * probe only accepts an entry whose two words XOR back to the probed key,
+ * so an entry torn by two threads writing at once reads as a miss instead
+ * of returning another position's data.
+ * <p>
+ * Entries are grouped in buckets of {@value #BUCKET_SIZE} slots. A store
+ * overwrites the slot of the same position, unless it holds a deeper
+ * result of the same search and the new one is only a bound. Otherwise it
+ * takes the slot that is least worth keeping: shallow entries, and entries
+ * left over from previous searches, go first.
+ */
+public final class TranspositionTable {
+    /**
+     * The score is a lower bound (the search failed high)
+     */
+    public static final int LOWER = 1;
+    /**
+     * The score is an upper bound (the search failed low)
+     */
+    public static final int UPPER = 2;
+    public static final int EXACT = 3;
+
+    static final int BUCKET_SIZE = 4;
+    private static final int ENTRY_BYTES = 16;
+
+    /*
+     * Data layout:
+     *  bits  0..15  best move (PackedMove)
+     *  bits 16..31  score (signed)
+     *  bits 32..39  depth
+     *  bits 40..41  bound (0 = empty slot)
+     *  bits 42..49  age (search generation)
+     */
+    private static final int SCORE_SHIFT = 16;
+    private static final int DEPTH_SHIFT = 32;
+    private static final int BOUND_SHIFT = 40;
+    private static final int AGE_SHIFT = 42;
+
+    private final long[] keys;
+    private final long[] data;
+    private final int bucketMask;
+    private int age;
+
+    /**
+     * @param megabytes the memory to use, rounded down to a power of two
+     *                  number of buckets
+     */
+    public TranspositionTable(int megabytes) {
+        if (megabytes < 1) throw new IllegalArgumentException("Size must be at least 1 MB");
+
+        long buckets = Long.highestOneBit((long) megabytes * 1024 * 1024 / (ENTRY_BYTES * BUCKET_SIZE));
+        if (buckets * BUCKET_SIZE > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Size too large: " + megabytes + " MB");
+
+        this.keys = new long[(int) buckets * BUCKET_SIZE];
+        this.data = new long[(int) buckets * BUCKET_SIZE];
+        this.bucketMask = (int) buckets - 1;
+    }
+
+    /**
+     * @return the number of entries the table holds
+     */
+    public int capacity() {
+        return this.data.length;
+    }
+
+    /**
+     * Forget every entry. Not safe while a search is running.
+     */
+    public void clear() {
+        Arrays.fill(this.keys, 0L);
+        Arrays.fill(this.data, 0L);
+        this.age = 0;
+    }
+
+    /**
+     * Start a new search: entries of earlier searches become the first to
+     * be replaced
+     */
+    public void newSearch() {
+        this.age = (this.age + 1) & 0xFF;
+    }
+
+    /**
+     * @param key the position key
+     * @return the entry of the position (read its fields with
+     * {@link #move}, {@link #score}, {@link #depth} and {@link #bound}), or
+     * 0 if there is none
+     */
+    public long probe(long key) {
+        int first = bucket(key);
+        for (int i = first; i < first + BUCKET_SIZE; i++) {
+            long data = this.data[i];
+            if ((this.keys[i] ^ data) == key && data != 0) return data;
+        }
+        return 0L;
+    }
+
+    /**
+     * @param key   the position key
+     * @param move  the best move found, or {@link PackedMove#NONE}
+     * @param score the score (mate scores relative to this position)
+     * @param depth the depth searched
+     * @param bound {@link #LOWER}, {@link #UPPER} or {@link #EXACT}
+     */
+    public void store(long key, int move, int score, int depth, int bound) {
+        int first = bucket(key);
+        int replace = first;
+        int worst = Integer.MAX_VALUE;
+        for (int i = first; i < first + BUCKET_SIZE; i++) {
+            long data = this.data[i];
+            if ((this.keys[i] ^ data) == key || data == 0) {
+                if (data != 0) {
+                    // a deeper bound of this search is worth more
+                    if (depth < depth(data) && bound != EXACT && age(data) == this.age) return;
+                    // keep the known best move of the position if we have none
+                    if (move == PackedMove.NONE) move = move(data);
+                }
+                replace = i;
+                break;
+            }
+            // each search of age counts as much as 8 plies of depth
+            int stale = (this.age - age(data)) & 0xFF;
+            int worth = depth(data) - 8 * stale;
+            if (worth < worst) {
+                worst = worth;
+                replace = i;
+            }
+        }
+
+        long data = (move & 0xFFFFL)
+                | (score & 0xFFFFL) << SCORE_SHIFT
+                | (long) Math.min(depth, 0xFF) << DEPTH_SHIFT
+                | (long) bound << BOUND_SHIFT
+                | (long) this.age << AGE_SHIFT;
+        this.data[replace] = data;
+        this.keys[replace] = key ^ data;
+    }
+
+    /**
+     * @return the occupancy by the current search in permille, sampled on
+     * the first entries
+     */
+    public int hashfull() {
+        int sample = Math.min(1000, this.data.length);
+        int used = 0;
+        for (int i = 0; i < sample; i++) {
+            if (this.data[i] != 0 && age(this.data[i]) == this.age) used++;
+        }
+        return used * 1000 / sample;
+    }
+
+    public static int move(long entry) {
+        return (int) (entry & 0xFFFF);
+    }
+
+    public static int score(long entry) {
+        return (short) (entry >>> SCORE_SHIFT);
+    }
+
+    public static int depth(long entry) {
+        return (int) (entry >>> DEPTH_SHIFT & 0xFF);
+    }
+
+    public static int bound(long entry) {
+        return (int) (entry >>> BOUND_SHIFT & 0x3);
+    }
+
+    private static int age(long entry) {
+        return (int) (entry >>> AGE_SHIFT & 0xFF);
+    }
+
+    private int bucket(long key) {
+        // the low bits select the bucket, the whole key verifies the entry
+        return ((int) key & this.bucketMask) * BUCKET_SIZE;
+    }
+}
@@ -0,0 +1,150 @@
+package core.move;
+
+import core.PieceType;
+import core.square.Square;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Moves packed into 16 bits, for move lists, transposition tables and game
+ * records that must not allocate.
+ * <p>
+ * Layout:
+ * <pre>
+ *  bits  0..5   source square index
+ *  bits  6..11  target square index
+ *  bits 12..13  promotion piece (knight, bishop, rook, queen)
+ *  bits 14..15  flag (normal, promotion, en passant, castle)
+ * </pre>
+ * Packed moves are passed around as {@code int}s (always in 0..0xFFFF) and
+ * can be narrowed with {@link #toShort} for storage. Square indices are the
+ * ones of {@link Square#index()}.
+ */
+public final class PackedMove {
+    /**
+     * Never a legal move (a1 to a1), used as an empty slot
+     */
+    public static final int NONE = 0;
+
+    public static final int NORMAL = 0;
+    public static final int PROMOTION = 1;
+    public static final int EN_PASSANT = 2;
+    public static final int CASTLE = 3;
+
+    private static final PieceType[] PROMOTIONS = {
+            PieceType.Knight, PieceType.Bishop, PieceType.Rook, PieceType.Queen
+    };
+
+    private PackedMove() {
+    }
+
+    public static int of(int from, int to) {
+        return from | to << 6;
+    }
+
+    /**
+     * @param promotion the promotion piece, or null for a normal move
+     * @throws IllegalArgumentException if a pawn can't promote to the piece
+     */
+    public static int of(int from, int to, PieceType promotion) {
+        if (promotion == null) return of(from, to);
+        if (!isPromotionPiece(promotion))
+            throw new IllegalArgumentException("Invalid promotion: " + promotion);
+        return from | to << 6 | (promotion.ordinal() - PieceType.Knight.ordinal()) << 12
+                | PROMOTION << 14;
+    }
+
+    /**
+     * @return if a pawn can promote to the piece type (knight, bishop, rook
+     * or queen)
+     */
+    public static boolean isPromotionPiece(@NotNull PieceType type) {
+        return type != PieceType.Pawn && type != PieceType.King;
+    }
+
+    public static int enPassant(int from, int to) {
+        return from | to << 6 | EN_PASSANT << 14;
+    }
+
+    public static int castle(int from, int to) {
+        return from | to << 6 | CASTLE << 14;
+    }
+
+    /**
+     * Pack a move without looking at a board: en passant and castle flags
+     * are not set (see {@link core.Position#pack} for that).
+     */
+    public static int of(@NotNull Move move) {
+        return of(move.from().index(), move.to().index(),
+                move.promotion().orElse(null));
+    }
+
+    public static int of(@NotNull QualifiedMove move) {
+        int from = move.from().index();
+        int to = move.to().index();
+        if (move.castle() != CastleType.None) return castle(from, to);
+        if (move.enPassant()) return enPassant(from, to);
+        return of(from, to, move.promotion());
+    }
+
+    public static int from(int move) {
+        return move & 0x3F;
+    }
+
+    public static int to(int move) {
+        return move >>> 6 & 0x3F;
+    }
+
+    /**
+     * @return one of {@link #NORMAL}, {@link #PROMOTION},
+     * {@link #EN_PASSANT} or {@link #CASTLE}
+     */
+    public static int flag(int move) {
+        return move >>> 14 & 0x3;
+    }
+
+    public static boolean isPromotion(int move) {
+        return flag(move) == PROMOTION;
+    }
+
+    public static boolean isEnPassant(int move) {
+        return flag(move) == EN_PASSANT;
+    }
+
+    public static boolean isCastle(int move) {
+        return flag(move) == CASTLE;
+    }
+
+    /**
+     * @return the promotion piece type, or null if the move is not a
+     * promotion
+     */
+    public static PieceType promotion(int move) {
+        return isPromotion(move) ? PROMOTIONS[move >>> 12 & 0x3] : null;
+    }
+
+    public static @NotNull Move toMove(int move) {
+        return new Move(Square.of(from(move)), Square.of(to(move)),
+                promotion(move));
+    }
+
+    public static short toShort(int move) {
+        return (short) move;
+    }
+
+    public static int fromShort(short move) {
+        return move & 0xFFFF;
+    }
+
+    /**
+     * @return the move in coordinate notation (e.g. e2e4, e7e8q)
+     */
+    public static @NotNull String toString(int move) {
+        var builder = new StringBuilder(5)
+                .append(Square.of(from(move)))
+                .append(Square.of(to(move)));
+        var promotion = promotion(move);
+        if (promotion != null)
+            builder.append("nbrq".charAt(promotion.ordinal() - PieceType.Knight.ordinal()));
+        return builder.toString();
+    }
+}
@@ -28,7 +28,7 @@ public record QualifiedMove(
         if (this.piece().type() == PieceType.Pawn) {
             piece = "";
         } else {
-            piece = new Piece(this.piece().type(), Color.Black).unicodeSym() + "";
+            piece = Piece.of(this.piece().type(), Color.Black).unicodeSym() + "";
         }
 
         var postfix = switch (this.status()) {
@@ -54,7 +54,7 @@ public record QualifiedMove(
                 res.append(this.capture() != null ? "x" : "");
                 res.append(this.to());
                 if (this.promotion() != null)
-                    res.append(new Piece(this.promotion(), Color.Black).unicodeSym());
+                    res.append(Piece.of(this.promotion(), Color.Black).unicodeSym());
             }
         }
         res.append(postfix);
@@ -5,12 +5,21 @@ import java.util.Optional;
 public enum File {
     A, B, C, D, E, F, G, H;
 
+    private static final File[] VALUES = values();
+
+    /**
+     * @param index the file index (0..7)
+     */
+    public static File of(int index) {
+        return VALUES[index];
+    }
+
     public Optional<File> add(int i) {
         var file = this.ordinal() + i;
         if (file < 0 || file > 7) {
             return Optional.empty();
         }
-        return Optional.of(File.values()[file]);
+        return Optional.of(VALUES[file]);
     }
 
     public int sub(File other) {
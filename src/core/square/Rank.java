@@ -7,11 +7,20 @@ public enum Rank {
     _1, _2, _3, _4, _5, _6, _7, _8;
 
 
+    private static final Rank[] VALUES = values();
+
+    /**
+     * @param index the rank index (0..7)
+     */
+    public static Rank of(int index) {
+        return VALUES[index];
+    }
+
     public Optional<Rank> add(int i) {
         var rank = this.ordinal() + i;
         if (rank < 0 || rank > 7) return Optional.empty();
 
-        return Optional.of(Rank.values()[rank]);
+        return Optional.of(VALUES[rank]);
     }
 
     public int sub(Rank other) {
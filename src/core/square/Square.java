@@ -1,8 +1,51 @@
 package core.square;
 
+import org.jetbrains.annotations.NotNull;
+
 import java.util.Optional;
 
+/**
+ * A square of the board.
+ * <p>
+ * The 64 squares are interned: {@link #of(int)} and {@link #of(File, Rank)}
+ * (and {@link #add}) return canonical instances, so square arithmetic
+ * allocates nothing. Squares built with the constructor are still equal to
+ * the canonical ones.
+ * <p>
+ * The index of a square is {@code rank * 8 + file} (a1 = 0, h1 = 7,
+ * a8 = 56, h8 = 63), as used by {@link core.bitboard.Bitboards}.
+ */
 public record Square(File file, Rank rank) {
+    private static final Square[] SQUARES = new Square[64];
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static final Optional<Square>[] OPTIONALS = new Optional[64];
+
+    static {
+        for (int index = 0; index < 64; index++) {
+            SQUARES[index] = new Square(File.of(index & 7), Rank.of(index >>> 3));
+            OPTIONALS[index] = Optional.of(SQUARES[index]);
+        }
+    }
+
+    /**
+     * @param index the square index (0..63)
+     * @return the square with that index
+     */
+    public static @NotNull Square of(int index) {
+        return SQUARES[index];
+    }
+
+    public static @NotNull Square of(@NotNull File file, @NotNull Rank rank) {
+        return SQUARES[rank.ordinal() * 8 + file.ordinal()];
+    }
+
+    /**
+     * @return the index of the square (0..63)
+     */
+    public int index() {
+        return this.rank.ordinal() * 8 + this.file.ordinal();
+    }
+
     public String toString() {
         return file.toString() + rank.toString();
     }
@@ -19,7 +62,6 @@ public record Square(File file, Rank rank) {
             return Optional.empty();
         }
 
-        return Optional.of(new Square(File.values()[file], Rank.values()[rank]));
+        return OPTIONALS[rank * 8 + file];
     }
 }
-
@@ -15,7 +15,7 @@ class Board {
           BiConsumer<PieceLabel, Square> onDrag) {
         for (var rank : Rank.values()) {
             for (var file : core.square.File.values()) {
-                Square square = new Square(file, rank);
+                Square square = Square.of(file, rank);
                 var label = new PieceLabel(null, square, cellDim, onSelect, onDrag);
                 this.set(label, square);
                 panel.add(label);
@@ -30,8 +30,8 @@ class Board {
     void forEach(BiConsumer<PieceLabel, Square> consumer) {
         for (var rank : Rank.values()) {
             for (var file : core.square.File.values()) {
-                consumer.accept(get(new Square(file, rank)), new Square(file,
-                        rank));
+                var square = Square.of(file, rank);
+                consumer.accept(get(square), square);
             }
         }
     }
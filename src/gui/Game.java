@@ -4,6 +4,7 @@ import core.ChessGame;
 import core.Color;
 import core.Piece;
 import core.PieceType;
+import core.engine.StaticExchange;
 import core.move.CastleType;
 import core.move.GameStatus;
 import core.move.Move;
@@ -113,26 +114,26 @@ public class Game extends JFrame {
 
         // en passant
         if (move.enPassant()) {
-            var enPassantSquare = new Square(move.to().file(),
+            var enPassantSquare = Square.of(move.to().file(),
                     move.from().rank());
             board.get(enPassantSquare).setPiece(null);
         }
 
         // promotion
         if (move.promotion() != null) {
-            piece = new Piece(move.promotion(), move.piece().color());
+            piece = Piece.of(move.promotion(), move.piece().color());
         }
 
         // castle
         if (move.castle() != CastleType.None) {
             var rookFile = move.castle() == CastleType.Short ? File.H : File.A;
             var rookRank = move.piece().color() == core.Color.White ? Rank._1 : Rank._8;
-            var rookSquare = new Square(rookFile, rookRank);
+            var rookSquare = Square.of(rookFile, rookRank);
 
             var newRookFile = move.castle() == CastleType.Short ? File.F : File.D;
-            var newRookSquare = new Square(newRookFile, rookRank);
+            var newRookSquare = Square.of(newRookFile, rookRank);
 
-            Piece rook = new Piece(PieceType.Rook, move.piece().color());
+            Piece rook = Piece.of(PieceType.Rook, move.piece().color());
             animateMove(new Move(rookSquare, newRookSquare), rook);
         }
 
@@ -244,7 +245,16 @@ public class Game extends JFrame {
         this.selectedSquare = square;
         label.select();
         if (!this.locked) {
-            game.getLegalMoves(square).forEach(move -> board.get(move).legal());
+            var position = game.position();
+            game.getLegalMoves(square).forEach(target -> {
+                var targetLabel = board.get(target);
+                targetLabel.legal();
+                // hint at captures that lose material
+                var move = new Move(square, target);
+                if (position.board().isOccupied(target)
+                        && StaticExchange.evaluate(position, position.pack(move)) < 0)
+                    targetLabel.unsafe();
+            });
         }
     }
 
@@ -25,6 +25,7 @@ class PieceLabel extends JLabel {
     private static final Color LIGHT = new Color(0xf0d9b5);
     private static final Color SELECTED = new Color(0x00DD00);
     private static final Color LEGAL = new Color(0x9C9C9C);
+    private static final Color UNSAFE = new Color(0xFF8800);
     private static final Color CHECK = new Color(0xFF0000);
     private static final Color LAST_MOVE = new Color(0xDDDD00);
     private static Image[][] pieceImages;
@@ -34,6 +35,7 @@ class PieceLabel extends JLabel {
     private boolean selected = false;
     private boolean inCheck = false;
     private boolean legal = false;
+    private boolean unsafe = false;
     private boolean lastMove = false;
 
 
@@ -155,6 +157,14 @@ class PieceLabel extends JLabel {
         this.update();
     }
 
+    /**
+     * Mark a legal capture that loses material
+     */
+    public void unsafe() {
+        this.unsafe = true;
+        this.update();
+    }
+
     public void ghost() {
         if (this.piece == null) {
             return;
@@ -175,6 +185,7 @@ class PieceLabel extends JLabel {
     public void deselect() {
         this.selected = false;
         this.legal = false;
+        this.unsafe = false;
         this.setPiece(this.piece);
         this.update();
     }
@@ -187,6 +198,7 @@ class PieceLabel extends JLabel {
     public void reset() {
         this.inCheck = false;
         this.legal = false;
+        this.unsafe = false;
         this.lastMove = false;
         this.selected = false;
         this.update();
@@ -214,6 +226,7 @@ class PieceLabel extends JLabel {
         var bgColor = new Color(initBg.getRGB());
         if (this.selected) bgColor = mix(bgColor, SELECTED);
         if (this.legal) bgColor = mix(bgColor, LEGAL);
+        if (this.unsafe) bgColor = mix(bgColor, UNSAFE);
         if (this.inCheck) bgColor = mix(bgColor, CHECK);
         if (this.lastMove) bgColor = mix(bgColor, LAST_MOVE);
         this.setBackground(bgColor);